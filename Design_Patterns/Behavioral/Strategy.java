@@ -24,8 +24,24 @@
  * 1. Context: Maintains a reference to one of the concrete strategies and 
  * communicates with it via the strategy interface.
  * 2. Strategy Interface: Common to all supported algorithms.
+ * 3. Strategies compose: a router that picks between other strategies is itself
+ * just another strategy, so the Context never changes when selection gets smarter.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 // --- 1. THE STRATEGY INTERFACE ---
 interface TranscriptionStrategy {
     String transcribe(String audioFileName);
@@ -81,9 +97,391 @@ class AudioTranscriptionController {
         String result = strategy.transcribe(audioFileName);
         System.out.println("Result: " + result);
     }
+
+    // Long recordings: same injected strategy, but fanned out over overlapping chunks.
+    public String processLongAudio(String audioFileName, long durationMillis, int maxConcurrency,
+                                   PartialTranscriptListener listener) {
+        System.out.println("\nStarting chunked audio processing pipeline...");
+        ChunkedTranscriptionPipeline pipeline = new ChunkedTranscriptionPipeline(strategy, maxConcurrency);
+        return pipeline.transcribe(audioFileName, durationMillis, listener);
+    }
+}
+
+// --- 4. LIVE METRICS (Per-strategy latency + error tracking) ---
+// HdrHistogram-style log-linear buckets: every power of two is split into 8 linear
+// sub-buckets, so percentiles stay within ~12% precision with a fixed 496-slot array
+// and a lock-free record path. decay() halves every bucket, so old samples fade out.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+
+    public void recordMicros(long micros) {
+        counts.incrementAndGet(indexFor(Math.max(1, micros)));
+        totalCount.incrementAndGet();
+    }
+
+    public long getTotalCount() { return totalCount.get(); }
+
+    // Halves every bucket. Concurrent records may land either side of the halving; that only
+    // shifts their weight by one decay step, which is fine for routing decisions.
+    public void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            long before = counts.getAndUpdate(i, count -> count >> 1);
+            totalCount.addAndGet(-(before - (before >> 1)));
+        }
+    }
+
+    public long percentileMicros(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(counts.length() - 1);
+    }
+
+    private static int indexFor(long value) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude < SUB_BUCKET_BITS) {
+            return (int) value; // Tiny values get an exact slot
+        }
+        int subBucket = (int) ((value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
+
+class StrategyHealth {
+    // Exponentially weighted error rate: recent failures matter more than old ones.
+    private static final double ERROR_DECAY = 0.2;
+    // Latency decays by sample count: once the histogram holds this many (weighted) samples it
+    // is halved, so the percentiles always describe roughly the last 16-32 calls.
+    private static final int LATENCY_WINDOW = 16;
+    // What a failed call is "worth" in latency: the caller waited and then paid for the fallback.
+    private static final long FAILURE_PENALTY_MICROS = 100_000;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private double errorRate = 0.0;
+    private boolean tried = false;
+
+    public void recordSuccess(long micros) {
+        latency.recordMicros(micros);
+        synchronized (this) {
+            tried = true;
+            errorRate = errorRate * (1 - ERROR_DECAY);
+            if (latency.getTotalCount() >= 2 * LATENCY_WINDOW) {
+                latency.decay();
+            }
+        }
+    }
+
+    public synchronized void recordFailure() {
+        tried = true;
+        errorRate = errorRate * (1 - ERROR_DECAY) + ERROR_DECAY;
+    }
+
+    public synchronized double getErrorRate() { return errorRate; }
+    public LatencyHistogram getLatency() { return latency; }
+
+    // Lower is better. Untried engines score 0 so each one gets sampled at least once; after
+    // that the error rate is charged as penalty latency, so an engine that only ever fails
+    // (p50 of 0) can't keep winning while it stays under the breaker threshold.
+    public double score() {
+        double errors;
+        synchronized (this) {
+            if (!tried) {
+                return 0;
+            }
+            errors = errorRate;
+        }
+        return latency.percentileMicros(50) * (1 + 10 * errors) + errors * FAILURE_PENALTY_MICROS;
+    }
+}
+
+// --- 5. CIRCUIT BREAKER (Ejecting failing engines) ---
+// CLOSED: traffic flows. OPEN: engine is ejected until the cool-down passes.
+// HALF_OPEN: exactly one live request is let through as a recovery probe.
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long coolDownNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, long coolDownMillis) {
+        this.failureThreshold = failureThreshold;
+        this.coolDownNanos = coolDownMillis * 1_000_000L;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= coolDownNanos) {
+            state = State.HALF_OPEN;
+            return true; // This caller becomes the probe
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() { return state; }
+}
+
+// --- 6. ADAPTIVE ROUTER (A Strategy that chooses Strategies) ---
+// Because the router IS a TranscriptionStrategy, the controller is untouched:
+// `controller.setStrategy(router)` replaces the manual swapping with automatic routing.
+class AdaptiveTranscriptionRouter implements TranscriptionStrategy {
+    private static final int EXPLORE_INTERVAL = 8;
+
+    private final Map<TranscriptionStrategy, StrategyHealth> health = new LinkedHashMap<>();
+    private final Map<TranscriptionStrategy, CircuitBreaker> breakers = new LinkedHashMap<>();
+    private final List<TranscriptionStrategy> candidates;
+    private final TranscriptionStrategy fallback;
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public AdaptiveTranscriptionRouter(List<TranscriptionStrategy> candidates, TranscriptionStrategy fallback) {
+        this(candidates, fallback, 3, 5_000);
+    }
+
+    public AdaptiveTranscriptionRouter(List<TranscriptionStrategy> candidates, TranscriptionStrategy fallback,
+                                       int failureThreshold, long coolDownMillis) {
+        for (TranscriptionStrategy candidate : candidates) {
+            health.put(candidate, new StrategyHealth());
+            breakers.put(candidate, new CircuitBreaker(failureThreshold, coolDownMillis));
+        }
+        this.candidates = new ArrayList<>(candidates);
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String transcribe(String audioFileName) {
+        TranscriptionStrategy chosen = pickBest();
+        if (chosen == null) {
+            System.out.println("   -> [ROUTER] All engines ejected. Using fallback.");
+            return fallback.transcribe(audioFileName);
+        }
+
+        StrategyHealth stats = health.get(chosen);
+        CircuitBreaker breaker = breakers.get(chosen);
+        long start = System.nanoTime();
+        try {
+            String result = chosen.transcribe(audioFileName);
+            stats.recordSuccess((System.nanoTime() - start) / 1_000);
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            stats.recordFailure();
+            breaker.onFailure();
+            System.out.println("   -> [ROUTER] Engine failed (" + e.getMessage() + "). Retrying on fallback.");
+            return fallback.transcribe(audioFileName);
+        }
+    }
+
+    private TranscriptionStrategy pickBest() {
+        // Every EXPLORE_INTERVAL-th request goes round-robin so slower engines keep fresh
+        // numbers and can win traffic back once they speed up.
+        long ticket = requestCount.incrementAndGet();
+        if (ticket % EXPLORE_INTERVAL == 0) {
+            TranscriptionStrategy explored = candidates.get((int) (ticket / EXPLORE_INTERVAL % candidates.size()));
+            if (breakers.get(explored).allowRequest()) {
+                return explored;
+            }
+        }
+
+        // Recovery probes: an ejected engine whose cool-down expired gets one live request.
+        for (Map.Entry<TranscriptionStrategy, CircuitBreaker> entry : breakers.entrySet()) {
+            if (entry.getValue().getState() == CircuitBreaker.State.OPEN && entry.getValue().allowRequest()) {
+                System.out.println("   -> [ROUTER] Probing ejected engine: " + entry.getKey());
+                return entry.getKey();
+            }
+        }
+
+        TranscriptionStrategy best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Map.Entry<TranscriptionStrategy, StrategyHealth> entry : health.entrySet()) {
+            double score = entry.getValue().score();
+            if (score < bestScore && breakers.get(entry.getKey()).getState() == CircuitBreaker.State.CLOSED) {
+                best = entry.getKey();
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    public void printReport() {
+        for (TranscriptionStrategy strategy : health.keySet()) {
+            StrategyHealth stats = health.get(strategy);
+            System.out.printf("   %-12s breaker=%-9s p50=%6dus p99=%6dus errors=%.2f%n", strategy,
+                    breakers.get(strategy).getState(), stats.getLatency().percentileMicros(50),
+                    stats.getLatency().percentileMicros(99), stats.getErrorRate());
+        }
+    }
 }
 
-// --- 4. TESTER (The Client) ---
+// --- 7. CHUNKED PIPELINE (Parallel transcription of long recordings) ---
+// Callback for streaming partial results; chunks arrive in COMPLETION order, not time order.
+interface PartialTranscriptListener {
+    void onChunkTranscribed(int chunkIndex, int totalChunks, String text);
+}
+
+class ChunkedTranscriptionPipeline {
+    private static final long DEFAULT_CHUNK_MILLIS = 30_000; // Whisper-style 30s windows
+    private static final long DEFAULT_OVERLAP_MILLIS = 2_000; // So no word is cut in half at a boundary
+
+    private final TranscriptionStrategy strategy;
+    private final long chunkMillis;
+    private final long overlapMillis;
+    private final int maxConcurrency;
+
+    public ChunkedTranscriptionPipeline(TranscriptionStrategy strategy, int maxConcurrency) {
+        this(strategy, DEFAULT_CHUNK_MILLIS, DEFAULT_OVERLAP_MILLIS, maxConcurrency);
+    }
+
+    public ChunkedTranscriptionPipeline(TranscriptionStrategy strategy, long chunkMillis, long overlapMillis,
+                                        int maxConcurrency) {
+        if (overlapMillis < 0 || overlapMillis >= chunkMillis) {
+            throw new IllegalArgumentException("Overlap must be in [0, chunkMillis)");
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.strategy = strategy;
+        this.chunkMillis = chunkMillis;
+        this.overlapMillis = overlapMillis;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public String transcribe(String audioFileName, long durationMillis, PartialTranscriptListener listener) {
+        List<String> chunkIds = splitIntoChunks(audioFileName, durationMillis);
+        String[] texts = new String[chunkIds.size()];
+        long[] spanMillis = new long[chunkIds.size()];
+        for (int i = 0; i < spanMillis.length; i++) {
+            spanMillis[i] = Math.min(chunkMillis, durationMillis - i * (chunkMillis - overlapMillis));
+        }
+
+        // The pool size IS the concurrency limit: at most maxConcurrency chunks are in flight.
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrency, chunkIds.size())));
+        CompletionService<Integer> finished = new ExecutorCompletionService<>(pool);
+        try {
+            for (int i = 0; i < chunkIds.size(); i++) {
+                final int index = i;
+                finished.submit(() -> {
+                    texts[index] = strategy.transcribe(chunkIds.get(index));
+                    return index;
+                });
+            }
+            for (int i = 0; i < chunkIds.size(); i++) {
+                int index = finished.take().get();
+                listener.onChunkTranscribed(index, chunkIds.size(), texts[index]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Chunked transcription interrupted: " + audioFileName, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Chunk transcription failed for " + audioFileName, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return stitch(texts, spanMillis, overlapMillis);
+    }
+
+    // Chunks are addressed with W3C media-fragment syntax so any strategy can consume them
+    // through the unchanged `transcribe(String)` contract: "talk.wav#t=28.000,58.000".
+    List<String> splitIntoChunks(String audioFileName, long durationMillis) {
+        List<String> chunkIds = new ArrayList<>();
+        long step = chunkMillis - overlapMillis;
+        for (long start = 0; start < durationMillis; start += step) {
+            long end = Math.min(start + chunkMillis, durationMillis);
+            chunkIds.add(String.format("%s#t=%d.%03d,%d.%03d", audioFileName,
+                    start / 1000, start % 1000, end / 1000, end % 1000));
+            if (end == durationMillis) {
+                break;
+            }
+        }
+        return chunkIds;
+    }
+
+    // Neighbouring chunks both hear the overlap window, so drop the head of the next chunk that
+    // repeats the tail of the transcript so far. Engines return no timestamps, so the window is
+    // estimated from the chunk's own word rate, and only that many words are ever compared:
+    // a phrase the speaker really repeated further in survives.
+    static String stitch(String[] texts, long[] spanMillis, long overlapMillis) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            List<String> next = texts[i].isBlank() ? List.of() : Arrays.asList(texts[i].trim().split("\\s+"));
+            int overlap = 0;
+            if (i > 0 && !next.isEmpty()) {
+                double expected = (double) next.size() * overlapMillis / Math.max(1, spanMillis[i]);
+                int window = (int) Math.min(next.size(), Math.ceil(expected) + 1); // +1: a word straddling the edge
+                overlap = overlapLength(words, next, window, Math.round(expected));
+            }
+            words.addAll(next.subList(overlap, next.size()));
+        }
+        return String.join(" ", words);
+    }
+
+    // Among head lengths that line up with the tail of the same length, pick the one closest to
+    // the expected overlap; ties go longer. Repeats like "yes yes yes" line up at several
+    // lengths, and the word rate picks between them.
+    private static int overlapLength(List<String> words, List<String> next, int window, long expected) {
+        int best = 0;
+        for (int m = Math.min(window, words.size()); m > 0; m--) {
+            if (matches(words.subList(words.size() - m, words.size()), next.subList(0, m))
+                    && (best == 0 || Math.abs(m - expected) < Math.abs(best - expected))) {
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    // Compares normalized words and tolerates one misheard (or half-heard) word in four:
+    // "ship the new build on Friday." lines up with "ship the new built on friday".
+    private static boolean matches(List<String> tail, List<String> head) {
+        int mismatches = 0;
+        for (int i = 0; i < head.size(); i++) {
+            if (!normalize(tail.get(i)).equals(normalize(head.get(i)))) {
+                mismatches++;
+            }
+        }
+        return mismatches <= head.size() / 4;
+    }
+
+    private static String normalize(String word) {
+        return word.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}']", "");
+    }
+}
+
+// --- 8. TESTER (The Client) ---
 public class Strategy {
     public static void main(String[] args) {
         // 1. App boots up, Wi-Fi is strong. We default to the heavy cloud model.
@@ -98,5 +496,151 @@ public class Strategy {
         // 3. Device model fails or battery is too low, we swap to a standard API.
         controller.setStrategy(new FallbackApiStrategy());
         controller.processAudio("emergency_log.wav");
+
+        // 4. No operator in the loop: the router measures every engine and routes around failures.
+        System.out.println("\n--- Adaptive Routing ---");
+        SimulatedEngine cloud = new SimulatedEngine("cloud", 2);
+        SimulatedEngine onDevice = new SimulatedEngine("on-device", 40);
+        AdaptiveTranscriptionRouter router = new AdaptiveTranscriptionRouter(
+                List.of(cloud, onDevice), new FallbackApiStrategy(), 2, 50);
+        controller.setStrategy(router);
+        for (int i = 0; i < 4; i++) {
+            controller.processAudio("clip_" + i + ".wav");
+        }
+
+        cloud.setFailing(true); // The cloud engine degrades; traffic must move without a manual swap
+        for (int i = 4; i < 8; i++) {
+            controller.processAudio("clip_" + i + ".wav");
+        }
+        router.printReport();
+
+        cloud.setFailing(false);
+        sleep(60); // Cool-down expires; the next request probes the cloud engine and re-admits it
+        for (int i = 8; i < 10; i++) {
+            controller.processAudio("clip_" + i + ".wav");
+        }
+        router.printReport();
+
+        // The histograms decay, so routing follows LIVE latency: when the cloud slows down
+        // past the on-device model, traffic moves over within a window of samples.
+        System.out.println("\n--- Live Latency Shift ---");
+        cloud.setLatencyMillis(80);
+        long cloudCallsBefore = cloud.getCalls();
+        long onDeviceCallsBefore = onDevice.getCalls();
+        for (int i = 0; i < 40; i++) {
+            router.transcribe("shift_" + i + ".wav");
+        }
+        router.printReport();
+        System.out.println("After the slowdown: cloud=" + (cloud.getCalls() - cloudCallsBefore)
+                + " calls, on-device=" + (onDevice.getCalls() - onDeviceCallsBefore) + " calls");
+
+        // An engine that has never succeeded has no latency samples at all; its failures alone
+        // must keep it from being scored as the "fastest" engine.
+        System.out.println("\n--- Error-Only Engine ---");
+        SimulatedEngine broken = new SimulatedEngine("broken", 1);
+        broken.setFailing(true);
+        SimulatedEngine steady = new SimulatedEngine("steady", 5);
+        AdaptiveTranscriptionRouter strictRouter = new AdaptiveTranscriptionRouter(
+                List.of(broken, steady), new FallbackApiStrategy(), 5, 60_000);
+        for (int i = 0; i < 6; i++) {
+            strictRouter.transcribe("probe_" + i + ".wav");
+        }
+        strictRouter.printReport();
+        System.out.println("Calls sent to the broken engine (breaker never tripped): " + broken.getCalls());
+
+        // 5. An hour-long style recording: chunks fan out over 4 workers and stream back as they finish.
+        System.out.println("\n--- Chunked Long-Audio Pipeline ---");
+        long durationMillis = 5 * 60_000;
+        ScriptedSpeechEngine speech = new ScriptedSpeechEngine(durationMillis, 50);
+        controller.setStrategy(speech);
+        long start = System.nanoTime();
+        String transcript = controller.processLongAudio("lecture.wav", durationMillis, 4,
+                (index, total, text) -> System.out.println("   [PARTIAL] chunk " + (index + 1) + "/" + total
+                        + " -> " + text.split(" ").length + " words"));
+        long parallelMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        new ChunkedTranscriptionPipeline(speech, 1).transcribe("lecture.wav", durationMillis, (i, n, t) -> { });
+        long sequentialMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("Stitched transcript matches script: " + transcript.equals(speech.fullScript()));
+        System.out.println("Wall clock: 4 workers = " + parallelMillis + " ms, 1 worker = " + sequentialMillis + " ms");
+
+        // 10 words in a 10s chunk with a 1s overlap: about one word is shared, so only one "yes" goes.
+        System.out.println("Real repeats kept:   " + ChunkedTranscriptionPipeline.stitch(new String[] {
+                "the crowd chanted yes yes yes", "yes yes and then they left the hall early tonight"},
+                new long[] {10_000, 10_000}, 1_000));
+        // The two chunks disagree on a word and on punctuation, but still line up.
+        System.out.println("Approximate overlap: " + ChunkedTranscriptionPipeline.stitch(new String[] {
+                "we will ship the new build on Friday.", "ship the new built on friday and then rest"},
+                new long[] {10_000, 10_000}, 5_000));
+    }
+
+    private static void sleep(long millis) {
+        try { Thread.sleep(millis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
+
+// Test double: an engine with a fixed simulated latency that can be switched into an outage.
+class SimulatedEngine implements TranscriptionStrategy {
+    private final String name;
+    private volatile long latencyMillis;
+    private volatile boolean failing = false;
+    private final AtomicLong calls = new AtomicLong();
+
+    public SimulatedEngine(String name, long latencyMillis) {
+        this.name = name;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setFailing(boolean failing) { this.failing = failing; }
+    public void setLatencyMillis(long latencyMillis) { this.latencyMillis = latencyMillis; }
+    public long getCalls() { return calls.get(); }
+
+    @Override
+    public String transcribe(String audioFileName) {
+        calls.incrementAndGet();
+        if (failing) {
+            throw new IllegalStateException(name + " unavailable");
+        }
+        try { Thread.sleep(latencyMillis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        System.out.println("[" + name + "] Transcribed " + audioFileName);
+        return name + " transcription of " + audioFileName;
+    }
+
+    @Override
+    public String toString() { return name; }
+}
+
+// Test double: a recording that says one word every 500 ms. It understands media-fragment
+// chunk IDs, so overlapping chunks return overlapping text just like a real engine would.
+class ScriptedSpeechEngine implements TranscriptionStrategy {
+    private static final long MILLIS_PER_WORD = 500;
+
+    private final long durationMillis;
+    private final long latencyMillis;
+
+    public ScriptedSpeechEngine(long durationMillis, long latencyMillis) {
+        this.durationMillis = durationMillis;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String transcribe(String audioFileName) {
+        try { Thread.sleep(latencyMillis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        String[] range = audioFileName.substring(audioFileName.indexOf("#t=") + 3).split(",");
+        return wordsBetween(Math.round(Double.parseDouble(range[0]) * 1000), Math.round(Double.parseDouble(range[1]) * 1000));
+    }
+
+    public String fullScript() {
+        return wordsBetween(0, durationMillis);
+    }
+
+    private String wordsBetween(long startMillis, long endMillis) {
+        List<String> words = new ArrayList<>();
+        for (long t = (startMillis + MILLIS_PER_WORD - 1) / MILLIS_PER_WORD * MILLIS_PER_WORD; t < endMillis; t += MILLIS_PER_WORD) {
+            words.add("w" + t / MILLIS_PER_WORD);
+        }
+        return String.join(" ", words);
     }
 }
\ No newline at end of file
@@ -23,41 +23,310 @@
  * 1. The Template Method itself MUST be marked `final` so subclasses can't break the order.
  * 2. Abstract methods: Steps the subclass MUST implement.
  * 3. Hook methods: Steps with an empty/default implementation that a subclass CAN override.
+ * 4. A class can expose more than one template method. The streaming variant keeps
+ * the same Verify-before-Flash guarantee, just per block instead of per package.
  */
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
 
 // --- 1. THE ABSTRACT BASE CLASS (The Blueprint) ---
 abstract class OtaUpdatePipeline {
+    // The vendor's update-signing key, provisioned on the device (think verified-boot key).
+    // Manifests are trusted only if they carry a signature this key verifies; nothing in the
+    // downloaded payload can vouch for itself.
+    private final PublicKey vendorKey;
+
+    protected OtaUpdatePipeline() {
+        this(null); // Only the simulated executeUpdate() flow; signed updates are refused
+    }
+
+    protected OtaUpdatePipeline(PublicKey vendorKey) {
+        this.vendorKey = vendorKey;
+    }
 
     // THE TEMPLATE METHOD: Marked 'final' to prevent overriding.
     // This defines the strict algorithm skeleton to prevent bricking.
+    // Every step is timed into the stage recorder, so fleets can watch each stage separately.
     public final void executeUpdate() {
-        System.out.println("--- Starting System Update Sequence ---");
+        log("--- Starting System Update Sequence ---");
+        lastUpdateSucceeded = false;
 
-        fetchUpdatePackage();
+        timed(OtaStage.FETCH, () -> { fetchUpdatePackage(); return null; });
 
-        if (verifyChecksum()) {
+        boolean verified = timed(OtaStage.VERIFY, this::verifyChecksum);
+        if (verified) {
             // This is a "Hook". It runs optionally if the subclass overrides it.
             onBeforeFlash();
 
-            flashPartitions();
-            rebootDevice();
+            timed(OtaStage.FLASH, () -> { flashPartitions(); return null; });
+            timed(OtaStage.REBOOT, () -> { rebootDevice(); return null; });
+            lastUpdateSucceeded = true;
         } else {
-            System.out.println("[ERROR] Update aborted due to security failure.");
+            log("[ERROR] Update aborted due to security failure.");
         }
 
-        System.out.println("--- Update Sequence Complete ---\n");
+        log("--- Update Sequence Complete ---\n");
+    }
+
+    private OtaStageRecorder stageRecorder = OtaStageRecorder.NONE;
+    private volatile boolean lastUpdateSucceeded = false;
+
+    // Outcome of the last executeUpdate(): true only if it verified, flashed and rebooted.
+    public boolean isLastUpdateSuccessful() {
+        return lastUpdateSucceeded;
+    }
+
+    public void setStageRecorder(OtaStageRecorder stageRecorder) {
+        this.stageRecorder = stageRecorder;
+    }
+
+    private <T> T timed(OtaStage stage, Supplier<T> step) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = step.get();
+            succeeded = !Boolean.FALSE.equals(result);
+            return result;
+        } finally {
+            stageRecorder.record(stage, System.nanoTime() - start, succeeded);
+        }
+    }
+
+    // SECOND TEMPLATE METHOD: the streaming, resumable variant of the same skeleton.
+    // Fetch and flash overlap: block N+1 downloads and hashes while block N is flashed,
+    // so total time approaches max(fetch, flash) instead of fetch + flash.
+    public final boolean executeStreamingUpdate(UpdateCheckpoint checkpoint) {
+        log("--- Starting Streaming Update Sequence ---");
+
+        UpdateManifest manifest;
+        try {
+            manifest = fetchManifest();
+        } catch (IOException e) {
+            log("[ERROR] Could not fetch update manifest: " + e.getMessage());
+            return false;
+        }
+        if (!verifyManifest(manifest)) {
+            log("[ERROR] Update aborted due to security failure.");
+            return false;
+        }
+
+        int firstBlock = checkpoint.resumeBlock(manifest);
+        if (firstBlock > 0) {
+            log("[RESUME] Skipping " + firstBlock + "/" + manifest.getBlockCount() + " already flashed blocks.");
+        }
+        onBeforeFlash();
+
+        boolean complete = streamVerifiedBlocks(manifest, checkpoint, firstBlock);
+        if (complete) {
+            checkpoint.clear();
+            rebootDevice();
+        }
+        log("--- Streaming Update Sequence " + (complete ? "Complete" : "Paused") + " ---\n");
+        return complete;
+    }
+
+    // Standardized step: the manifest lists a SHA-256 per block, and its root digest is what
+    // the vendor signs. Once the signature checks out against the device's own key, every
+    // block can be trusted on its own.
+    private boolean verifyManifest(UpdateManifest manifest) {
+        boolean valid = verifyVendorSignature(manifest.computeRootDigest(), manifest.getSignature());
+        log("[SECURITY] Verifying manifest signature against vendor key... " + (valid ? "Valid." : "INVALID."));
+        return valid;
+    }
+
+    private boolean verifyVendorSignature(byte[] signedDigest, byte[] signature) {
+        if (vendorKey == null || signature == null) {
+            return false; // No provisioned key (or an unsigned manifest): nothing can be trusted
+        }
+        try {
+            Signature verifier = Signature.getInstance(UpdateManifest.SIGNATURE_ALGORITHM);
+            verifier.initVerify(vendorKey);
+            verifier.update(signedDigest);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    // Stage 1 runs on the caller: read a block from the channel, hash it, hand it to stage 2.
+    // Stage 2 runs on its own thread: flash the block, then persist the checkpoint.
+    private boolean streamVerifiedBlocks(UpdateManifest manifest, UpdateCheckpoint checkpoint, int firstBlock) {
+        BlockingQueue<VerifiedBlock> verified = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        ExecutorService flashStage = Executors.newSingleThreadExecutor();
+        Future<?> flashing = flashStage.submit(() -> {
+            for (VerifiedBlock block = verified.take(); block != VerifiedBlock.END; block = verified.take()) {
+                // The offset comes from the signed manifest, never from the transport
+                flashBlock(block.index, (long) block.index * manifest.getBlockSize(), block.data);
+                checkpoint.commit(manifest, block.index + 1);
+            }
+            finishFlash(manifest.getTotalBytes());
+            return null;
+        });
+
+        String failure = null;
+        try (ReadableByteChannel channel = openPackageChannel((long) firstBlock * manifest.getBlockSize())) {
+            MessageDigest sha256 = UpdateManifest.newSha256();
+            for (int index = firstBlock; index < manifest.getBlockCount() && failure == null; index++) {
+                ByteBuffer block = ByteBuffer.allocate(manifest.blockLength(index));
+                while (block.hasRemaining()) {
+                    int start = block.position();
+                    if (channel.read(block) < 0) {
+                        throw new EOFException("package truncated at block " + index);
+                    }
+                    sha256.update(block.slice(start, block.position() - start)); // Hash each read as it lands
+                }
+                block.flip();
+                if (MessageDigest.isEqual(sha256.digest(), manifest.getBlockHash(index))) {
+                    if (!handOff(verified, new VerifiedBlock(index, block), flashing)) {
+                        break; // The flash stage died; its own exception is the failure, read below
+                    }
+                } else {
+                    failure = "checksum mismatch in block " + index;
+                }
+            }
+        } catch (IOException e) {
+            failure = "transfer interrupted (" + e.getMessage() + ")";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+        }
+
+        // Blocks already verified are still safe to flash, so drain the queue before stopping.
+        try {
+            handOff(verified, VerifiedBlock.END, flashing);
+            flashing.get();
+        } catch (ExecutionException e) {
+            failure = failure != null ? failure : "flash failed (" + e.getCause() + ")";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+        } finally {
+            flashStage.shutdownNow();
+        }
+
+        if (failure != null) {
+            log("[ERROR] Streaming update stopped: " + failure + ". Progress saved at block "
+                    + checkpoint.resumeBlock(manifest) + "/" + manifest.getBlockCount() + ".");
+            return false;
+        }
+        return true;
+    }
+
+    // THIRD TEMPLATE METHOD: block-level delta update. Only blocks that differ from the
+    // running image are fetched; each one is proven against the signed Merkle root before
+    // it touches the inactive slot, and the whole slot is re-proven before reboot.
+    public final boolean executeDeltaUpdate() {
+        log("--- Starting Delta Update Sequence ---");
+        try {
+            DeltaManifest delta = fetchDeltaManifest();
+            if (!verifyDeltaManifest(delta)) {
+                log("[ERROR] Update aborted due to security failure.");
+                return false;
+            }
+            log("[DELTA] " + delta.getChangedBlocks().size() + "/" + delta.getBlockCount()
+                    + " blocks changed.");
+            onBeforeFlash();
+
+            MappedByteBuffer slot = mapInactiveSlot(delta);
+            for (int index : delta.getChangedBlocks()) {
+                DeltaBlock block = fetchDeltaBlock(index);
+                if (!MerkleTree.verifyProof(MerkleTree.leafHash(block.getData().duplicate()), index,
+                        delta.getBlockCount(), block.getProof(), delta.getRootDigest())) {
+                    log("[ERROR] Merkle proof failed for block " + index + ". Update aborted due to security failure.");
+                    return false;
+                }
+                slot.put(index * delta.getBlockSize(), block.getData(), 0, block.getData().remaining());
+            }
+            slot.force();
+
+            if (!verifyPatchedSlot(slot, delta)) {
+                log("[ERROR] Update aborted due to security failure.");
+                return false;
+            }
+            rebootDevice();
+            log("--- Delta Update Sequence Complete ---\n");
+            return true;
+        } catch (IOException e) {
+            log("[ERROR] Delta update failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Standardized step: the Merkle root (and the image layout) are pinned by the vendor's
+    // signature, so the server can't hand over a root that simply matches its own blocks.
+    private boolean verifyDeltaManifest(DeltaManifest delta) {
+        boolean valid = verifyVendorSignature(delta.computeSignedDigest(), delta.getSignature());
+        log("[SECURITY] Verifying delta manifest signature against vendor key... " + (valid ? "Valid." : "INVALID."));
+        return valid;
+    }
+
+    // Standardized step: unchanged blocks were copied from the running image, so prove the
+    // final slot as a whole too. A drifted base image fails here instead of at boot.
+    private boolean verifyPatchedSlot(MappedByteBuffer slot, DeltaManifest delta) {
+        byte[] root = MerkleTree.ofBlocks(slot.duplicate().clear(), delta.getBlockSize()).root();
+        boolean valid = MessageDigest.isEqual(root, delta.getRootDigest());
+        log("[SECURITY] Verifying Merkle root of patched slot... " + (valid ? "Valid." : "INVALID."));
+        return valid;
+    }
+
+    // False if the flash stage has already stopped (it only does so by failing, or after END).
+    private static boolean handOff(BlockingQueue<VerifiedBlock> queue, VerifiedBlock block, Future<?> flashing)
+            throws InterruptedException {
+        while (!queue.offer(block, 50, TimeUnit.MILLISECONDS)) {
+            if (flashing.isDone()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // Standardized step: Security must be uniform. Subclasses cannot change this.
     private boolean verifyChecksum() {
-        System.out.println("[SECURITY] Verifying SHA-256 cryptographic signature... Valid.");
+        log("[SECURITY] Verifying SHA-256 cryptographic signature... Valid.");
         return true;
     }
 
     // Standardized step: Reboot logic is handled by the core OS.
     private void rebootDevice() {
-        System.out.println("[SYSTEM] Issuing hardware reboot command...");
+        log("[SYSTEM] Issuing hardware reboot command...");
     }
 
     // Abstract steps: Subclasses MUST implement their own versions of these.
@@ -68,16 +337,93 @@ abstract class OtaUpdatePipeline {
     protected void onBeforeFlash() {
         // Default implementation does nothing.
     }
+
+    // Hook step: where progress messages go. Fleet-scale runs silence it.
+    protected void log(String message) {
+        System.out.println(message);
+    }
+
+    // Streaming steps: only delivery methods that support block streaming override these.
+    // The defaults fail with an IOException, so the template aborts cleanly instead of throwing.
+    protected UpdateManifest fetchManifest() throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support streaming updates");
+    }
+
+    protected ReadableByteChannel openPackageChannel(long offset) throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support streaming updates");
+    }
+
+    // Must be durable when it returns: the checkpoint is advanced right after. `offset` is where
+    // the block belongs in the slot, computed from the verified manifest.
+    protected void flashBlock(int blockIndex, long offset, ByteBuffer block) throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support streaming updates");
+    }
+
+    // Called once every block is flashed: cut the slot to the image size, so a previous, larger
+    // image can't leave bytes behind the new one.
+    protected void finishFlash(long imageBytes) throws IOException {
+        // Default implementation does nothing.
+    }
+
+    // Delta steps: the subclass knows where deltas come from and which slot is inactive.
+    protected DeltaManifest fetchDeltaManifest() throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support delta updates");
+    }
+
+    protected DeltaBlock fetchDeltaBlock(int blockIndex) throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support delta updates");
+    }
+
+    // Must return the inactive slot, pre-filled with the running image and sized for the new one.
+    protected MappedByteBuffer mapInactiveSlot(DeltaManifest delta) throws IOException {
+        throw new IOException(getClass().getSimpleName() + " does not support delta updates");
+    }
+
+    private static final int PIPELINE_DEPTH = 4;
+
+    private static final class VerifiedBlock {
+        static final VerifiedBlock END = new VerifiedBlock(-1, null);
+
+        final int index;
+        final ByteBuffer data;
+
+        VerifiedBlock(int index, ByteBuffer data) {
+            this.index = index;
+            this.data = data;
+        }
+    }
 }
 
 // --- 2. CONCRETE IMPLEMENTATION A (Background Wi-Fi Update) ---
 class WiFiSeamlessUpdate extends OtaUpdatePipeline {
     private String serverUrl;
+    private OtaPackageSource packageSource;
+    private DeltaPackageSource deltaSource;
+    private Path activeSlot;
+    private Path inactiveSlot;
 
     public WiFiSeamlessUpdate(String serverUrl) {
         this.serverUrl = serverUrl;
     }
 
+    // Streaming-capable: blocks come from the package source and land in the inactive slot.
+    public WiFiSeamlessUpdate(String serverUrl, OtaPackageSource packageSource, Path inactiveSlot, PublicKey vendorKey) {
+        super(vendorKey);
+        this.serverUrl = serverUrl;
+        this.packageSource = packageSource;
+        this.inactiveSlot = inactiveSlot;
+    }
+
+    // Delta-capable: only changed blocks are downloaded and patched over a copy of slot A.
+    public WiFiSeamlessUpdate(String serverUrl, DeltaPackageSource deltaSource, Path activeSlot, Path inactiveSlot,
+                              PublicKey vendorKey) {
+        super(vendorKey);
+        this.serverUrl = serverUrl;
+        this.deltaSource = deltaSource;
+        this.activeSlot = activeSlot;
+        this.inactiveSlot = inactiveSlot;
+    }
+
     @Override
     protected void fetchUpdatePackage() {
         System.out.println("[WI-FI] Downloading update payload from: " + serverUrl);
@@ -93,6 +439,61 @@ class WiFiSeamlessUpdate extends OtaUpdatePipeline {
     protected void onBeforeFlash() {
         System.out.println("[WI-FI] HOOK: Backing up user settings to cloud before flashing.");
     }
+
+    @Override
+    protected UpdateManifest fetchManifest() throws IOException {
+        System.out.println("[WI-FI] Fetching block manifest from: " + serverUrl);
+        return packageSource.fetchManifest();
+    }
+
+    @Override
+    protected ReadableByteChannel openPackageChannel(long offset) throws IOException {
+        System.out.println("[WI-FI] Streaming payload from byte offset " + offset);
+        return packageSource.openChannel(offset);
+    }
+
+    @Override
+    protected void flashBlock(int blockIndex, long offset, ByteBuffer block) throws IOException {
+        try (FileChannel slot = FileChannel.open(inactiveSlot, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = offset;
+            while (block.hasRemaining()) {
+                position += slot.write(block, position);
+            }
+            slot.force(false);
+        }
+    }
+
+    @Override
+    protected void finishFlash(long imageBytes) throws IOException {
+        try (FileChannel slot = FileChannel.open(inactiveSlot, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            slot.truncate(imageBytes);
+            slot.force(true);
+        }
+    }
+
+    @Override
+    protected DeltaManifest fetchDeltaManifest() throws IOException {
+        byte[] baseRoot = MerkleTree.ofFile(activeSlot, deltaSource.getBlockSize()).root();
+        System.out.println("[WI-FI] Requesting delta against running image from: " + serverUrl);
+        return deltaSource.fetchDeltaManifest(baseRoot);
+    }
+
+    @Override
+    protected DeltaBlock fetchDeltaBlock(int blockIndex) throws IOException {
+        return deltaSource.fetchBlock(blockIndex);
+    }
+
+    @Override
+    protected MappedByteBuffer mapInactiveSlot(DeltaManifest delta) throws IOException {
+        if (delta.getImageSize() > Integer.MAX_VALUE) {
+            throw new IOException("images over 2 GB must be patched through several mappings");
+        }
+        Files.copy(activeSlot, inactiveSlot, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel slot = FileChannel.open(inactiveSlot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            slot.truncate(delta.getImageSize()); // Shrinking images; mapping below grows the file otherwise
+            return slot.map(FileChannel.MapMode.READ_WRITE, 0, delta.getImageSize());
+        }
+    }
 }
 
 // --- 3. CONCRETE IMPLEMENTATION B (Manual USB Recovery Update) ---
@@ -116,7 +517,599 @@ class UsbRecoveryUpdate extends OtaUpdatePipeline {
     // Notice: We don't override the hook here. It just skips it quietly.
 }
 
-// --- 4. TESTER (The Client) ---
+// --- 4. STREAMING SUPPORT (Manifest, Checkpoint, Package Source) ---
+class UpdateManifest {
+    static final String SIGNATURE_ALGORITHM = "Ed25519";
+
+    private final int blockSize;
+    private final long totalBytes;
+    private final List<byte[]> blockHashes;
+    private final byte[] signature;
+
+    public UpdateManifest(int blockSize, long totalBytes, List<byte[]> blockHashes, byte[] signature) {
+        this.blockSize = blockSize;
+        this.totalBytes = totalBytes;
+        this.blockHashes = blockHashes;
+        this.signature = signature;
+    }
+
+    // Server-side tooling: hash the image block by block without loading it into memory, then
+    // sign the root digest with the vendor's private key (which never leaves the build server).
+    public static UpdateManifest forImage(Path image, int blockSize, PrivateKey signingKey) throws IOException {
+        List<byte[]> hashes = new ArrayList<>();
+        MessageDigest sha256 = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                if (buffer.hasRemaining() && channel.position() < channel.size()) {
+                    continue; // Short read: keep filling the block
+                }
+                buffer.flip();
+                sha256.update(buffer);
+                hashes.add(sha256.digest());
+                buffer.clear();
+            }
+            UpdateManifest unsigned = new UpdateManifest(blockSize, channel.size(), hashes, null);
+            return new UpdateManifest(blockSize, channel.size(), hashes, sign(unsigned.computeRootDigest(), signingKey));
+        }
+    }
+
+    static byte[] sign(byte[] digest, PrivateKey signingKey) throws IOException {
+        try {
+            Signature signer = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signer.initSign(signingKey);
+            signer.update(digest);
+            return signer.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("could not sign manifest", e);
+        }
+    }
+
+    // Covers the layout too: a manifest can't keep its signature with a different size.
+    public byte[] computeRootDigest() {
+        MessageDigest sha256 = newSha256();
+        sha256.update(ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(blockSize).putLong(totalBytes).flip());
+        for (byte[] hash : blockHashes) {
+            sha256.update(hash);
+        }
+        return sha256.digest();
+    }
+
+    public int getBlockSize() { return blockSize; }
+    public long getTotalBytes() { return totalBytes; }
+    public int getBlockCount() { return blockHashes.size(); }
+    public byte[] getBlockHash(int index) { return blockHashes.get(index); }
+    public byte[] getSignature() { return signature; }
+
+    public int blockLength(int index) {
+        return (int) Math.min(blockSize, totalBytes - (long) index * blockSize);
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is mandatory on every JVM", e);
+        }
+    }
+}
+
+// Remembers the next block to flash, tied to the manifest it belongs to. Written with an
+// atomic rename so a power cut leaves either the old or the new checkpoint, never half of one.
+class UpdateCheckpoint {
+    private final Path file;
+
+    public UpdateCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    public int resumeBlock(UpdateManifest manifest) {
+        try {
+            if (!Files.exists(file)) {
+                return 0;
+            }
+            String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(" ");
+            boolean sameUpdate = parts[0].equals(HexFormat.of().formatHex(manifest.computeRootDigest()));
+            int nextBlock = sameUpdate ? Integer.parseInt(parts[1]) : 0;
+            return nextBlock >= 0 && nextBlock <= manifest.getBlockCount() ? nextBlock : 0; // Out of range = corrupt
+        } catch (IOException | RuntimeException e) {
+            return 0; // Unreadable checkpoint: start over, verification still protects us
+        }
+    }
+
+    public void commit(UpdateManifest manifest, int nextBlock) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] content = (HexFormat.of().formatHex(manifest.computeRootDigest()) + " " + nextBlock)
+                .getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true); // Bytes on disk BEFORE the rename, or a power cut can publish an empty file
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("[WARN] Could not clear update checkpoint: " + e.getMessage());
+        }
+    }
+}
+
+// Where streamed bytes come from. Over Wi-Fi this is an HTTP range request.
+interface OtaPackageSource {
+    UpdateManifest fetchManifest() throws IOException;
+    ReadableByteChannel openChannel(long offset) throws IOException;
+    int getBlockSize();
+}
+
+// Local stand-in for the update server: a package file on disk.
+class FilePackageSource implements OtaPackageSource {
+    private final Path packageFile;
+    private final int blockSize;
+    private final PrivateKey signingKey;
+
+    public FilePackageSource(Path packageFile, int blockSize, PrivateKey signingKey) {
+        this.packageFile = packageFile;
+        this.blockSize = blockSize;
+        this.signingKey = signingKey;
+    }
+
+    @Override
+    public UpdateManifest fetchManifest() throws IOException {
+        return UpdateManifest.forImage(packageFile, blockSize, signingKey);
+    }
+
+    @Override
+    public ReadableByteChannel openChannel(long offset) throws IOException {
+        return FileChannel.open(packageFile, StandardOpenOption.READ).position(offset);
+    }
+
+    @Override
+    public int getBlockSize() { return blockSize; }
+}
+
+// --- 5. DELTA SUPPORT (Merkle tree, Delta manifest, Delta source) ---
+// Leaves are SHA-256(0x00 || block), parents SHA-256(0x01 || left || right); the prefixes stop
+// a leaf from ever being passed off as an inner node. An unpaired node is hashed with a fixed
+// PADDING sibling, so every proof has exactly one sibling per level and none can be skipped.
+class MerkleTree {
+    private static final byte[] PADDING = UpdateManifest.newSha256().digest(new byte[] { 0x02 });
+
+    private final List<byte[][]> levels = new ArrayList<>();
+
+    public MerkleTree(List<byte[]> leafHashes) {
+        byte[][] level = leafHashes.toArray(new byte[0][]);
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parents = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = nodeHash(level[2 * i], 2 * i + 1 < level.length ? level[2 * i + 1] : PADDING);
+            }
+            levels.add(parents);
+            level = parents;
+        }
+    }
+
+    public static MerkleTree ofBlocks(ByteBuffer image, int blockSize) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int offset = 0; offset < image.limit(); offset += blockSize) {
+            leaves.add(leafHash(image.slice(offset, Math.min(blockSize, image.limit() - offset))));
+        }
+        return new MerkleTree(leaves);
+    }
+
+    public static MerkleTree ofFile(Path image, int blockSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            return ofBlocks(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), blockSize);
+        }
+    }
+
+    public byte[] root() {
+        byte[][] top = levels.get(levels.size() - 1);
+        return top.length == 0 ? UpdateManifest.newSha256().digest() : top[0];
+    }
+
+    public List<byte[]> leafHashes() { return Arrays.asList(levels.get(0)); }
+
+    // Sibling hashes from leaf to root, one per level (PADDING where the node had no sibling).
+    public List<byte[]> proof(int leafIndex) {
+        List<byte[]> proof = new ArrayList<>();
+        int index = leafIndex;
+        for (int depth = 0; depth < levels.size() - 1; depth++) {
+            byte[][] level = levels.get(depth);
+            int sibling = index ^ 1;
+            proof.add(sibling < level.length ? level[sibling] : PADDING);
+            index /= 2;
+        }
+        return proof;
+    }
+
+    // The leaf count comes from the signed manifest, so the expected height can't be negotiated:
+    // a proof that is short, long or has holes is rejected before any hashing.
+    public static boolean verifyProof(byte[] leafHash, int leafIndex, int leafCount, List<byte[]> proof, byte[] root) {
+        if (leafIndex < 0 || leafIndex >= leafCount || proof == null || proof.size() != heightFor(leafCount)) {
+            return false;
+        }
+        byte[] hash = leafHash;
+        int index = leafIndex;
+        for (byte[] sibling : proof) {
+            if (sibling == null || sibling.length != hash.length) {
+                return false;
+            }
+            hash = index % 2 == 0 ? nodeHash(hash, sibling) : nodeHash(sibling, hash);
+            index /= 2;
+        }
+        return MessageDigest.isEqual(hash, root);
+    }
+
+    static int heightFor(int leafCount) {
+        int height = 0;
+        for (int width = leafCount; width > 1; width = (width + 1) / 2) {
+            height++;
+        }
+        return height;
+    }
+
+    public static byte[] leafHash(ByteBuffer block) {
+        MessageDigest sha256 = UpdateManifest.newSha256();
+        sha256.update((byte) 0x00);
+        sha256.update(block);
+        return sha256.digest();
+    }
+
+    private static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest sha256 = UpdateManifest.newSha256();
+        sha256.update((byte) 0x01);
+        sha256.update(left);
+        sha256.update(right);
+        return sha256.digest();
+    }
+}
+
+class DeltaManifest {
+    private final int blockSize;
+    private final long imageSize;
+    private final List<Integer> changedBlocks;
+    private final byte[] rootDigest;
+    private final byte[] signature;
+
+    public DeltaManifest(int blockSize, long imageSize, List<Integer> changedBlocks, byte[] rootDigest,
+                         byte[] signature) {
+        this.blockSize = blockSize;
+        this.imageSize = imageSize;
+        this.changedBlocks = changedBlocks;
+        this.rootDigest = rootDigest;
+        this.signature = signature;
+    }
+
+    // Server-side tooling: a block is shipped when its leaf hash differs or it is past the old image's end.
+    // The new image's root is signed by the vendor at build time, not by whoever serves the delta.
+    public static DeltaManifest diff(MerkleTree oldImage, MerkleTree newImage, int blockSize, long newImageSize,
+                                     PrivateKey signingKey) throws IOException {
+        List<Integer> changed = new ArrayList<>();
+        List<byte[]> oldLeaves = oldImage.leafHashes();
+        List<byte[]> newLeaves = newImage.leafHashes();
+        for (int i = 0; i < newLeaves.size(); i++) {
+            if (i >= oldLeaves.size() || !Arrays.equals(oldLeaves.get(i), newLeaves.get(i))) {
+                changed.add(i);
+            }
+        }
+        DeltaManifest unsigned = new DeltaManifest(blockSize, newImageSize, changed, newImage.root(), null);
+        return new DeltaManifest(blockSize, newImageSize, changed, newImage.root(),
+                UpdateManifest.sign(unsigned.computeSignedDigest(), signingKey));
+    }
+
+    // What the vendor signs: the Merkle root plus the layout it was built with. The changed-block
+    // list is left out on purpose; every shipped block is proven against the root anyway.
+    public byte[] computeSignedDigest() {
+        MessageDigest sha256 = UpdateManifest.newSha256();
+        sha256.update(ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(blockSize).putLong(imageSize).flip());
+        sha256.update(rootDigest);
+        return sha256.digest();
+    }
+
+    public int getBlockSize() { return blockSize; }
+    public long getImageSize() { return imageSize; }
+    public int getBlockCount() { return (int) ((imageSize + blockSize - 1) / blockSize); }
+    public List<Integer> getChangedBlocks() { return changedBlocks; }
+    public byte[] getRootDigest() { return rootDigest; }
+    public byte[] getSignature() { return signature; }
+}
+
+class DeltaBlock {
+    private final ByteBuffer data;
+    private final List<byte[]> proof;
+
+    public DeltaBlock(ByteBuffer data, List<byte[]> proof) {
+        this.data = data;
+        this.proof = proof;
+    }
+
+    public ByteBuffer getData() { return data; }
+    public List<byte[]> getProof() { return proof; }
+}
+
+interface DeltaPackageSource {
+    // The device names the image it is running (by Merkle root) so the server can pick the right diff.
+    DeltaManifest fetchDeltaManifest(byte[] baseRootDigest) throws IOException;
+    DeltaBlock fetchBlock(int blockIndex) throws IOException;
+    int getBlockSize();
+}
+
+// Local stand-in for the update server: diffs two image files and serves changed blocks.
+class FileDeltaSource implements DeltaPackageSource {
+    private final Path newImage;
+    private final int blockSize;
+    private final MerkleTree baseTree;
+    private final MerkleTree targetTree;
+    private final PrivateKey signingKey;
+    private long bytesServed = 0;
+
+    public FileDeltaSource(Path oldImage, Path newImage, int blockSize, PrivateKey signingKey) throws IOException {
+        this.newImage = newImage;
+        this.blockSize = blockSize;
+        this.signingKey = signingKey;
+        this.baseTree = MerkleTree.ofFile(oldImage, blockSize);
+        this.targetTree = MerkleTree.ofFile(newImage, blockSize);
+    }
+
+    @Override
+    public DeltaManifest fetchDeltaManifest(byte[] baseRootDigest) throws IOException {
+        if (!MessageDigest.isEqual(baseRootDigest, baseTree.root())) {
+            throw new IOException("no delta published for base image " + HexFormat.of().formatHex(baseRootDigest, 0, 8));
+        }
+        return DeltaManifest.diff(baseTree, targetTree, blockSize, Files.size(newImage), signingKey);
+    }
+
+    @Override
+    public DeltaBlock fetchBlock(int blockIndex) throws IOException {
+        try (FileChannel channel = FileChannel.open(newImage, StandardOpenOption.READ)) {
+            long offset = (long) blockIndex * blockSize;
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(blockSize, channel.size() - offset));
+            while (data.hasRemaining() && channel.read(data, offset + data.position()) > 0) {
+                // Keep reading until the block is full
+            }
+            data.flip();
+            bytesServed += data.remaining();
+            return new DeltaBlock(data, targetTree.proof(blockIndex));
+        }
+    }
+
+    @Override
+    public int getBlockSize() { return blockSize; }
+
+    public long getBytesServed() { return bytesServed; }
+}
+
+// --- 6. FLEET ROLLOUT (Thousands of pipelines on a bounded worker pool) ---
+enum OtaStage { FETCH, VERIFY, FLASH, REBOOT }
+
+interface OtaStageRecorder {
+    OtaStageRecorder NONE = (stage, nanos, succeeded) -> { };
+
+    void record(OtaStage stage, long nanos, boolean succeeded);
+}
+
+// Lock-free per-stage counters; `export()` renders them in Prometheus text format.
+class RolloutMetrics implements OtaStageRecorder {
+    private final Map<OtaStage, StageStats> stats = new EnumMap<>(OtaStage.class);
+    private final long startNanos = System.nanoTime();
+
+    public RolloutMetrics() {
+        for (OtaStage stage : OtaStage.values()) {
+            stats.put(stage, new StageStats());
+        }
+    }
+
+    @Override
+    public void record(OtaStage stage, long nanos, boolean succeeded) {
+        StageStats stageStats = stats.get(stage);
+        (succeeded ? stageStats.completed : stageStats.failed).increment();
+        stageStats.totalNanos.add(nanos);
+        stageStats.maxNanos.accumulate(nanos);
+    }
+
+    public String export() {
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<OtaStage, StageStats> entry : stats.entrySet()) {
+            String label = "{stage=\"" + entry.getKey().name().toLowerCase() + "\"}";
+            StageStats stageStats = entry.getValue();
+            long completed = stageStats.completed.sum();
+            long calls = completed + stageStats.failed.sum();
+            out.append("ota_stage_completed_total").append(label).append(' ').append(completed).append('\n')
+               .append("ota_stage_failed_total").append(label).append(' ').append(stageStats.failed.sum()).append('\n')
+               .append("ota_stage_latency_seconds_avg").append(label).append(' ')
+               .append(String.format("%.4f", calls == 0 ? 0.0 : stageStats.totalNanos.sum() / 1e9 / calls)).append('\n')
+               .append("ota_stage_latency_seconds_max").append(label).append(' ')
+               .append(String.format("%.4f", stageStats.maxNanos.get() / 1e9)).append('\n')
+               .append("ota_stage_throughput_per_second").append(label).append(' ')
+               .append(String.format("%.1f", completed / elapsedSeconds)).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static final class StageStats {
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    }
+}
+
+class RolloutWave {
+    private final String name;
+    private final List<OtaUpdatePipeline> devices;
+    private final int maxConcurrent;
+
+    public RolloutWave(String name, List<OtaUpdatePipeline> devices, int maxConcurrent) {
+        this.name = name;
+        this.devices = devices;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public String getName() { return name; }
+    public List<OtaUpdatePipeline> getDevices() { return devices; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+}
+
+// Where device updates run. On JDK 21+ each device gets its own virtual thread, so a wave of
+// 2,000 concurrent updates needs only a handful of OS threads. The lookup is reflective so this
+// file still compiles and runs on JDK 17, where a wave falls back to a fixed pool of at most
+// PLATFORM_CAP daemon threads: same results, but a wide wave then runs PLATFORM_CAP at a time.
+final class RolloutThreads {
+    static final int PLATFORM_CAP = 256;
+    static final boolean VIRTUAL = virtualFactory() != null;
+
+    private RolloutThreads() {}
+
+    static ExecutorService newWaveExecutor(int maxConcurrent) {
+        java.lang.reflect.Method factory = virtualFactory();
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to platform threads
+            }
+        }
+        return Executors.newFixedThreadPool(Math.min(maxConcurrent, PLATFORM_CAP), task -> {
+            Thread thread = new Thread(task, "ota-rollout-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static java.lang.reflect.Method virtualFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
+
+// Waves run one after another; inside a wave each device runs on its own worker (see
+// RolloutThreads), and a semaphore caps the wave at maxConcurrent and keeps new devices from
+// queueing up behind a halt. The halt test is a one-sided 99% Wilson lower bound on the failure
+// rate, not the raw ratio: the raw ratio is checked after every report, so with a small sample a
+// couple of unlucky early failures would stop a healthy build. A wave halts only once the
+// failure rate is, with 99% confidence, above the threshold (and minSamplesBeforeHalt devices
+// have reported). Then no new devices start and later waves are cancelled.
+class OtaRolloutScheduler {
+    private static final double CONFIDENCE_Z = 2.326; // One-sided 99%
+
+    private final double maxFailureRate;
+    private final int minSamplesBeforeHalt;
+    private final RolloutMetrics metrics = new RolloutMetrics();
+
+    public OtaRolloutScheduler(double maxFailureRate, int minSamplesBeforeHalt) {
+        this.maxFailureRate = maxFailureRate;
+        this.minSamplesBeforeHalt = minSamplesBeforeHalt;
+    }
+
+    public RolloutMetrics getMetrics() { return metrics; }
+
+    // Returns true when every wave finished without tripping the failure threshold.
+    public boolean run(List<RolloutWave> waves) {
+        for (RolloutWave wave : waves) {
+            if (!runWave(wave)) {
+                System.out.println("[ROLLOUT] HALTED in wave '" + wave.getName() + "'. Remaining waves cancelled.");
+                return false;
+            }
+        }
+        System.out.println("[ROLLOUT] All waves completed.");
+        return true;
+    }
+
+    private boolean runWave(RolloutWave wave) {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicBoolean halted = new AtomicBoolean(false);
+        Semaphore slots = new Semaphore(wave.getMaxConcurrent());
+        int started = 0;
+
+        ExecutorService executor = RolloutThreads.newWaveExecutor(wave.getMaxConcurrent());
+        try {
+            for (OtaUpdatePipeline device : wave.getDevices()) {
+                slots.acquire();
+                if (halted.get()) {
+                    slots.release();
+                    break;
+                }
+                started++;
+                device.setStageRecorder(metrics);
+                executor.submit(() -> {
+                    try {
+                        device.executeUpdate();
+                        (device.isLastUpdateSuccessful() ? succeeded : failed).incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        int failures = failed.get();
+                        int reported = succeeded.get() + failures;
+                        double lowerBound = failureRateLowerBound(failures, reported);
+                        if (reported >= minSamplesBeforeHalt && lowerBound > maxFailureRate
+                                && halted.compareAndSet(false, true)) {
+                            System.out.printf("[ROLLOUT] Halting wave %s: %d of %d failed (%.1f%%), 99%% lower bound"
+                                            + " %.1f%% > limit %.1f%%%n", wave.getName(), failures, reported,
+                                    100.0 * failures / reported, 100 * lowerBound, 100 * maxFailureRate);
+                        }
+                        slots.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            halted.set(true);
+        } finally {
+            executor.shutdown();
+            awaitInFlight(executor); // A flash already underway is never abandoned
+        }
+
+        int reported = succeeded.get() + failed.get();
+        System.out.printf("[ROLLOUT] Wave %-8s %5d updated, %4d failed, %5d skipped (failure rate %.1f%%,"
+                        + " 99%% lower bound %.1f%%)%n",
+                wave.getName(), succeeded.get(), failed.get(), wave.getDevices().size() - started,
+                reported == 0 ? 0.0 : 100.0 * failed.get() / reported,
+                100 * failureRateLowerBound(failed.get(), reported));
+        return !halted.get();
+    }
+
+    // Wilson score interval, lower end: the smallest failure rate still consistent with
+    // `failures` out of `reported` at CONFIDENCE_Z.
+    static double failureRateLowerBound(int failures, int reported) {
+        if (reported == 0) return 0.0;
+        double z2 = CONFIDENCE_Z * CONFIDENCE_Z;
+        double observed = (double) failures / reported;
+        double center = observed + z2 / (2.0 * reported);
+        double margin = CONFIDENCE_Z * Math.sqrt(observed * (1 - observed) / reported + z2 / (4.0 * reported * reported));
+        return Math.max(0.0, (center - margin) / (1 + z2 / reported));
+    }
+
+    private static void awaitInFlight(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true; // Keep waiting; re-assert the interrupt once devices are done
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// --- 7. TESTER (The Client) ---
 public class Template {
     public static void main(String[] args) {
         OtaUpdatePipeline nightlyBuild = new WiFiSeamlessUpdate("https://ota.android.com/nightly");
@@ -125,5 +1118,264 @@ public class Template {
 
         OtaUpdatePipeline manualFix = new UsbRecoveryUpdate("/dev/block/sda1");
         manualFix.executeUpdate();
+
+        try {
+            // The vendor's signing key pair: the private half stays on the build server, the
+            // public half is baked into every device.
+            KeyPair vendorKeys = KeyPairGenerator.getInstance(UpdateManifest.SIGNATURE_ALGORITHM).generateKeyPair();
+            demoStreamingUpdate(vendorKeys);
+            demoTamperedStreamingUpdate(vendorKeys);
+            demoDeltaUpdate(vendorKeys);
+        } catch (IOException | GeneralSecurityException e) {
+            System.out.println("[DEMO] OTA demo failed: " + e.getMessage());
+        }
+        demoFleetRollout();
+    }
+
+    // 6,050 simulated devices in three waves. A healthy build rolls out everywhere; a bad
+    // build (40% flash failures) is stopped by the canary wave.
+    private static void demoFleetRollout() {
+        System.out.println("--- Fleet Rollout: healthy build ---");
+        OtaRolloutScheduler healthy = new OtaRolloutScheduler(0.05, 20);
+        long start = System.nanoTime();
+        healthy.run(fleetWaves(0.005));
+        System.out.println("[DEMO] 6050 devices in " + (System.nanoTime() - start) / 1_000_000 + " ms on "
+                + (RolloutThreads.VIRTUAL ? "virtual threads" : "at most " + RolloutThreads.PLATFORM_CAP
+                + " platform threads per wave (JDK 21+ uses virtual threads)"));
+        System.out.print(healthy.getMetrics().export());
+
+        System.out.println("\n--- Fleet Rollout: bad build ---");
+        new OtaRolloutScheduler(0.05, 20).run(fleetWaves(0.40));
+    }
+
+    // Seeded: which devices fail is the same every run, so the demo's outcome is too.
+    private static List<RolloutWave> fleetWaves(double failureRate) {
+        java.util.Random seeds = new java.util.Random(2024);
+        return List.of(
+                new RolloutWave("canary", simulatedDevices(50, failureRate, seeds), 50),
+                new RolloutWave("early", simulatedDevices(1_000, failureRate, seeds), 500),
+                new RolloutWave("general", simulatedDevices(5_000, failureRate, seeds), 2_000));
+    }
+
+    private static List<OtaUpdatePipeline> simulatedDevices(int count, double failureRate, java.util.Random seeds) {
+        List<OtaUpdatePipeline> devices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            devices.add(new SimulatedFleetDevice(failureRate, seeds.nextLong()));
+        }
+        return devices;
+    }
+
+    // An 8 MB image in 64 KB blocks where a security patch touches ~5% of blocks and
+    // appends one more. Slots A and B are plain files standing in for partitions.
+    private static void demoDeltaUpdate(KeyPair vendorKeys) throws IOException, GeneralSecurityException {
+        Path workDir = Files.createTempDirectory("ota-delta-demo");
+        int blockSize = 64 * 1024;
+        byte[] oldBytes = new byte[8 * 1024 * 1024];
+        java.util.Random random = new java.util.Random(7);
+        random.nextBytes(oldBytes);
+        byte[] newBytes = Arrays.copyOf(oldBytes, oldBytes.length + blockSize);
+        for (int block = 0; block < oldBytes.length / blockSize; block += 20) {
+            newBytes[block * blockSize + random.nextInt(blockSize)] ^= 0x5A;
+        }
+        for (int i = oldBytes.length; i < newBytes.length; i++) {
+            newBytes[i] = (byte) random.nextInt();
+        }
+
+        Path slotA = Files.write(workDir.resolve("slot_a.img"), oldBytes);
+        Path slotB = workDir.resolve("slot_b.img");
+        Path published = Files.write(workDir.resolve("published.img"), newBytes);
+        FileDeltaSource server = new FileDeltaSource(slotA, published, blockSize, vendorKeys.getPrivate());
+
+        OtaUpdatePipeline delta = new WiFiSeamlessUpdate("https://ota.android.com/nightly", server, slotA, slotB,
+                vendorKeys.getPublic());
+        delta.executeDeltaUpdate();
+
+        System.out.println("[DEMO] Slot B matches new image: " + Arrays.equals(Files.readAllBytes(slotB), newBytes));
+        System.out.println("[DEMO] Transferred " + server.getBytesServed() / 1024 + " KB instead of "
+                + newBytes.length / 1024 + " KB for a full image.");
+
+        // A rogue server builds a perfectly consistent delta (root, blocks, proofs) for its own
+        // image. Without the vendor's private key it can't sign that root.
+        byte[] evilBytes = Arrays.copyOf(newBytes, newBytes.length);
+        evilBytes[0] ^= 0x01; // A backdoored bootloader block
+        Path evil = Files.write(workDir.resolve("evil.img"), evilBytes);
+        KeyPair attackerKeys = KeyPairGenerator.getInstance(UpdateManifest.SIGNATURE_ALGORITHM).generateKeyPair();
+        FileDeltaSource rogue = new FileDeltaSource(slotA, evil, blockSize, attackerKeys.getPrivate());
+        boolean installed = new WiFiSeamlessUpdate("https://ota.evil.example", rogue, slotA,
+                workDir.resolve("slot_b_rogue.img"), vendorKeys.getPublic()).executeDeltaUpdate();
+        System.out.println("[DEMO] Rogue-signed delta installed: " + installed);
+
+        // Proofs must have exactly one sibling per level: dropped or nulled levels fail outright.
+        MerkleTree tree = MerkleTree.ofFile(published, blockSize);
+        int leaves = tree.leafHashes().size();
+        byte[] leaf = tree.leafHashes().get(leaves - 1);
+        List<byte[]> proof = tree.proof(leaves - 1);
+        List<byte[]> holed = new ArrayList<>(proof);
+        holed.set(0, null);
+        System.out.println("[DEMO] Proof accepted: full=" + MerkleTree.verifyProof(leaf, leaves - 1, leaves, proof, tree.root())
+                + ", truncated=" + MerkleTree.verifyProof(leaf, leaves - 1, leaves, proof.subList(1, proof.size()), tree.root())
+                + ", with a null level=" + MerkleTree.verifyProof(leaf, leaves - 1, leaves, holed, tree.root()));
+    }
+
+    // A man-in-the-middle swaps the image and ships a manifest that matches it, signed with
+    // their own key. The hashes are all self-consistent; only the vendor key catches it.
+    // The USB recovery path has no streaming support and must refuse cleanly, not throw.
+    private static void demoTamperedStreamingUpdate(KeyPair vendorKeys) throws IOException, GeneralSecurityException {
+        Path workDir = Files.createTempDirectory("ota-tamper-demo");
+        byte[] imageBytes = new byte[1024 * 1024];
+        new java.util.Random(99).nextBytes(imageBytes);
+        Path tampered = Files.write(workDir.resolve("system.img"), imageBytes);
+        KeyPair attackerKeys = KeyPairGenerator.getInstance(UpdateManifest.SIGNATURE_ALGORITHM).generateKeyPair();
+        OtaPackageSource attacker = new FilePackageSource(tampered, 256 * 1024, attackerKeys.getPrivate());
+        Path slotB = workDir.resolve("slot_b.img");
+
+        OtaUpdatePipeline device = new WiFiSeamlessUpdate("https://ota.android.com/nightly", attacker, slotB,
+                vendorKeys.getPublic());
+        boolean installed = device.executeStreamingUpdate(new UpdateCheckpoint(workDir.resolve("ota.checkpoint")));
+        System.out.println("[DEMO] Re-signed tampered image installed: " + installed + ", slot B written: " + Files.exists(slotB));
+
+        boolean usbStreamed = new UsbRecoveryUpdate("/dev/block/sda1")
+                .executeStreamingUpdate(new UpdateCheckpoint(workDir.resolve("usb.checkpoint")));
+        System.out.println("[DEMO] USB streaming update refused cleanly: " + !usbStreamed);
+    }
+
+    // A 4 MB image in 256 KB blocks. Fetch and flash each cost ~40 ms per block, and the
+    // connection drops once after 6 blocks to show resuming from the checkpoint.
+    private static void demoStreamingUpdate(KeyPair vendorKeys) throws IOException {
+        Path workDir = Files.createTempDirectory("ota-demo");
+        Path image = workDir.resolve("system.img");
+        byte[] imageBytes = new byte[4 * 1024 * 1024];
+        new java.util.Random(42).nextBytes(imageBytes);
+        Files.write(image, imageBytes);
+
+        int blockSize = 256 * 1024;
+        SimulatedNetworkSource network = new SimulatedNetworkSource(
+                new FilePackageSource(image, blockSize, vendorKeys.getPrivate()), 40, 6);
+        Path slotB = workDir.resolve("slot_b.img");
+        Files.write(slotB, new byte[imageBytes.length + blockSize]); // Still holds an older, larger image
+        OtaUpdatePipeline streaming = new SlowFlashWiFiUpdate("https://ota.android.com/nightly", network, slotB, 40,
+                vendorKeys.getPublic());
+        UpdateCheckpoint checkpoint = new UpdateCheckpoint(workDir.resolve("ota.checkpoint"));
+
+        long start = System.nanoTime();
+        boolean done = streaming.executeStreamingUpdate(checkpoint);
+        while (!done) {
+            done = streaming.executeStreamingUpdate(checkpoint); // Connection is back: resume
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("[DEMO] Slot B matches image: " + Arrays.equals(Files.readAllBytes(slotB), imageBytes));
+        System.out.println("[DEMO] Pipelined: " + elapsedMillis + " ms (sequential fetch + flash would be ~"
+                + (16 * 40 * 2) + " ms)");
+
+        // A slot that can't be written: the log names the flash error, not just "stopped"
+        Path brokenSlot = Files.createDirectories(workDir.resolve("slot_b_unwritable"));
+        new WiFiSeamlessUpdate("https://ota.android.com/nightly",
+                new FilePackageSource(image, blockSize, vendorKeys.getPrivate()), brokenSlot, vendorKeys.getPublic())
+                .executeStreamingUpdate(new UpdateCheckpoint(workDir.resolve("broken.checkpoint")));
+    }
+}
+
+// Test double: throttles reads to one block per `millisPerBlock` and drops the connection
+// once after `failAfterBlocks` blocks.
+class SimulatedNetworkSource implements OtaPackageSource {
+    private final OtaPackageSource delegate;
+    private final long millisPerBlock;
+    private int blocksUntilFailure;
+
+    public SimulatedNetworkSource(OtaPackageSource delegate, long millisPerBlock, int failAfterBlocks) {
+        this.delegate = delegate;
+        this.millisPerBlock = millisPerBlock;
+        this.blocksUntilFailure = failAfterBlocks;
+    }
+
+    @Override
+    public UpdateManifest fetchManifest() throws IOException { return delegate.fetchManifest(); }
+
+    @Override
+    public int getBlockSize() { return delegate.getBlockSize(); }
+
+    @Override
+    public ReadableByteChannel openChannel(long offset) throws IOException {
+        ReadableByteChannel channel = delegate.openChannel(offset);
+        return new ReadableByteChannel() {
+            private long bytesUntilPause = 0;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (bytesUntilPause == 0) {
+                    if (blocksUntilFailure-- == 0) {
+                        throw new IOException("connection reset by peer");
+                    }
+                    try { Thread.sleep(millisPerBlock); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                    bytesUntilPause = getBlockSize();
+                }
+                ByteBuffer limited = dst.slice();
+                limited.limit((int) Math.min(limited.remaining(), bytesUntilPause));
+                int read = channel.read(limited);
+                if (read > 0) {
+                    dst.position(dst.position() + read);
+                    bytesUntilPause -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() { return channel.isOpen(); }
+
+            @Override
+            public void close() throws IOException { channel.close(); }
+        };
+    }
+}
+
+// Test double: real file writes plus a fixed per-block delay standing in for slow eMMC.
+class SlowFlashWiFiUpdate extends WiFiSeamlessUpdate {
+    private final long millisPerBlock;
+
+    public SlowFlashWiFiUpdate(String serverUrl, OtaPackageSource source, Path inactiveSlot, long millisPerBlock,
+                               PublicKey vendorKey) {
+        super(serverUrl, source, inactiveSlot, vendorKey);
+        this.millisPerBlock = millisPerBlock;
+    }
+
+    @Override
+    protected void flashBlock(int blockIndex, long offset, ByteBuffer block) throws IOException {
+        try { Thread.sleep(millisPerBlock); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        super.flashBlock(blockIndex, offset, block);
     }
 }
+
+
+// Test double: a device whose fetch and flash just take time, and whose flash fails at a given rate.
+class SimulatedFleetDevice extends OtaUpdatePipeline {
+    private final java.util.Random random; // Only ever used by the one worker running this device
+    private final boolean failsFlash;
+
+    public SimulatedFleetDevice(double failureRate, long seed) {
+        this.random = new java.util.Random(seed);
+        this.failsFlash = random.nextDouble() < failureRate;
+    }
+
+    @Override
+    protected void fetchUpdatePackage() {
+        pause(20 + random.nextInt(20));
+    }
+
+    @Override
+    protected void flashPartitions() {
+        pause(10 + random.nextInt(10));
+        if (failsFlash) {
+            throw new IllegalStateException("eMMC write error");
+        }
+    }
+
+    @Override
+    protected void log(String message) {
+        // Thousands of devices: keep the console for the rollout summary
+    }
+
+    private static void pause(long millis) {
+        try { Thread.sleep(millis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
\ No newline at end of file
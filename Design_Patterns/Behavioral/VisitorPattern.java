@@ -27,10 +27,40 @@
  * concrete type in the system.
  * 3. Double Dispatch: The element calls `visitor.visit(this)`, passing itself
  * securely to the visitor's type-specific method.
+ * 4. Who drives the walk is a choice: here the visitor recurses by default, but an
+ * external engine can drive it instead (e.g. in parallel) if the visitor allows it.
  */
 
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 // --- 1. THE VISITOR INTERFACE (The Operations) ---
 // Notice how it has a specific method for every single concrete type.
@@ -51,14 +81,22 @@ interface StorageNode {
 class VideoFile implements StorageNode {
     private String fileName;
     private int sizeInMegabytes;
+    private long contentHash;
 
     public VideoFile(String fileName, int sizeInMegabytes) {
+        this(fileName, sizeInMegabytes, ContentHash.UNKNOWN);
+    }
+
+    // contentHash comes from the media store (e.g. a digest kept alongside the file).
+    public VideoFile(String fileName, int sizeInMegabytes, long contentHash) {
         this.fileName = fileName;
         this.sizeInMegabytes = sizeInMegabytes;
+        this.contentHash = contentHash;
     }
 
     public int getSizeInMegabytes() { return sizeInMegabytes; }
     public String getFileName() { return fileName; }
+    public long getContentHash() { return contentHash; }
 
     @Override
     public void accept(StorageVisitor visitor) {
@@ -72,14 +110,21 @@ class VideoFile implements StorageNode {
 class AudioFile implements StorageNode {
     private String fileName;
     private int sizeInMegabytes;
+    private long contentHash;
 
     public AudioFile(String fileName, int sizeInMegabytes) {
+        this(fileName, sizeInMegabytes, ContentHash.UNKNOWN);
+    }
+
+    public AudioFile(String fileName, int sizeInMegabytes, long contentHash) {
         this.fileName = fileName;
         this.sizeInMegabytes = sizeInMegabytes;
+        this.contentHash = contentHash;
     }
 
     public int getSizeInMegabytes() { return sizeInMegabytes; }
     public String getFileName() { return fileName; }
+    public long getContentHash() { return contentHash; }
 
     @Override
     public void accept(StorageVisitor visitor) {
@@ -87,31 +132,186 @@ class AudioFile implements StorageNode {
     }
 }
 
+// Content digests come from the media store. UNKNOWN means the store had none: anything keyed
+// on content (like the incremental scanner) must treat that file as changed every time.
+final class ContentHash {
+    static final long UNKNOWN = 0;
+
+    private ContentHash() { }
+
+    static boolean isKnown(long contentHash) {
+        return contentHash != UNKNOWN;
+    }
+}
+
 class DirectoryNode implements StorageNode {
     private String directoryName;
     private List<StorageNode> childrenNodes = new ArrayList<>();
 
+    // Memoized subtree totals. null means dirty. Invariant: a dirty directory's ancestors are
+    // dirty too, so invalidation can stop at the first ancestor that is already dirty.
+    // Not safe to mutate while other threads read: childrenNodes is a plain ArrayList, and a reader
+    // racing addNode() could store a stale total after invalidation. Build the tree on one thread,
+    // then share it. Concurrent readers of an unchanging tree are fine: they compute equal totals.
+    private DirectoryNode parent;
+    private volatile StorageAggregate cachedAggregate;
+
     public DirectoryNode(String directoryName) {
         this.directoryName = directoryName;
     }
 
     public void addNode(StorageNode node) {
         childrenNodes.add(node);
+        node.accept(new ParentLink(this));
+        for (DirectoryNode dir = this; dir != null && dir.cachedAggregate != null; dir = dir.parent) {
+            dir.cachedAggregate = null; // O(depth) at worst
+        }
     }
 
     public List<StorageNode> getChildrenNodes() { return childrenNodes; }
+    public String getDirectoryName() { return directoryName; }
+
+    // O(1) when nothing below changed; otherwise only dirty subdirectories are recomputed.
+    // Post-order with an explicit stack, so arbitrarily deep trees can't overflow the call stack.
+    public StorageAggregate getAggregate() {
+        StorageAggregate aggregate = cachedAggregate;
+        if (aggregate != null) {
+            return aggregate; // Warm path: no allocation
+        }
+        Deque<DirectoryNode> pending = new ArrayDeque<>();
+        StorageVisitor pushDirty = new StorageVisitor() {
+            @Override
+            public void visit(VideoFile videoFile) { }
+
+            @Override
+            public void visit(AudioFile audioFile) { }
+
+            @Override
+            public void visit(DirectoryNode child) {
+                if (child.cachedAggregate == null) {
+                    pending.push(child);
+                }
+            }
+        };
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            DirectoryNode directory = pending.peek();
+            int before = pending.size();
+            for (StorageNode child : directory.childrenNodes) {
+                child.accept(pushDirty);
+            }
+            if (pending.size() == before) { // Every child is clean: this directory can be summed
+                StorageAggregate.Collector collector = new StorageAggregate.Collector();
+                for (StorageNode child : directory.childrenNodes) {
+                    child.accept(collector);
+                }
+                directory.cachedAggregate = collector.toAggregate();
+                pending.pop();
+                aggregate = directory == this ? directory.cachedAggregate : aggregate;
+            }
+        }
+        return aggregate;
+    }
 
     @Override
     public void accept(StorageVisitor visitor) {
         visitor.visit(this);
     }
+
+    // Double dispatch instead of instanceof: only a child directory needs to learn its parent.
+    private static final class ParentLink implements StorageVisitor {
+        private final DirectoryNode parent;
+
+        ParentLink(DirectoryNode parent) { this.parent = parent; }
+
+        @Override
+        public void visit(VideoFile videoFile) { }
+
+        @Override
+        public void visit(AudioFile audioFile) { }
+
+        @Override
+        public void visit(DirectoryNode directoryNode) { directoryNode.parent = parent; }
+    }
+}
+
+// Immutable subtree totals. Everything is a long: an int running total of megabytes
+// silently wraps once a tree passes 2^31 MB.
+class StorageAggregate {
+    private final long totalSizeInMegabytes;
+    private final long videoFileCount;
+    private final long audioFileCount;
+    private final long directoryCount;
+
+    public StorageAggregate(long totalSizeInMegabytes, long videoFileCount, long audioFileCount, long directoryCount) {
+        this.totalSizeInMegabytes = totalSizeInMegabytes;
+        this.videoFileCount = videoFileCount;
+        this.audioFileCount = audioFileCount;
+        this.directoryCount = directoryCount;
+    }
+
+    public long getTotalSizeInMegabytes() { return totalSizeInMegabytes; }
+    public long getVideoFileCount() { return videoFileCount; }
+    public long getAudioFileCount() { return audioFileCount; }
+    public long getDirectoryCount() { return directoryCount; }
+
+    @Override
+    public String toString() {
+        return totalSizeInMegabytes + " MB in " + videoFileCount + " videos, " + audioFileCount + " audio files, "
+                + directoryCount + " subdirectories";
+    }
+
+    // Sums one directory's children; subdirectories contribute their own (memoized) aggregate.
+    static final class Collector implements StorageVisitor {
+        private long size, videos, audios, directories;
+
+        @Override
+        public void visit(VideoFile videoFile) {
+            size += videoFile.getSizeInMegabytes();
+            videos++;
+        }
+
+        @Override
+        public void visit(AudioFile audioFile) {
+            size += audioFile.getSizeInMegabytes();
+            audios++;
+        }
+
+        @Override
+        public void visit(DirectoryNode directoryNode) {
+            StorageAggregate child = directoryNode.getAggregate();
+            size += child.totalSizeInMegabytes;
+            videos += child.videoFileCount;
+            audios += child.audioFileCount;
+            directories += child.directoryCount + 1;
+        }
+
+        StorageAggregate toAggregate() {
+            return new StorageAggregate(size, videos, audios, directories);
+        }
+    }
+}
+
+// Visitors that let an external engine drive the walk. `visit(DirectoryNode)` keeps recursing
+// for the classic single-threaded case; engines call `enterDirectory` and walk the children themselves.
+interface TraversableVisitor extends StorageVisitor {
+    default void enterDirectory(DirectoryNode directoryNode) { }
+    default void exitDirectory(DirectoryNode directoryNode) { }
+}
+
+// Visitors whose results can be computed in pieces: `fork()` gives an empty visitor of the
+// same kind, `merge()` folds a partial result in. Merging must be associative and commutative,
+// since subtrees finish in whatever order the worker threads get to them.
+interface ReducibleVisitor<V extends ReducibleVisitor<V>> extends TraversableVisitor {
+    V fork();
+    void merge(V partial);
 }
 
 // --- 4. CONCRETE VISITORS (The Operations) ---
 
 // Operation 1: Calculate Total Size
-class SizeCalculatorVisitor implements StorageVisitor {
-    private int totalSize = 0;
+class SizeCalculatorVisitor implements ReducibleVisitor<SizeCalculatorVisitor> {
+    private long totalSize = 0;
 
     @Override
     public void visit(VideoFile videoFile) {
@@ -125,39 +325,756 @@ class SizeCalculatorVisitor implements StorageVisitor {
 
     @Override
     public void visit(DirectoryNode directoryNode) {
-        // For directories, we just iterate and pass the visitor down the tree
+        // For directories, the memoized subtree total replaces a walk when nothing changed
+        totalSize += directoryNode.getAggregate().getTotalSizeInMegabytes();
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public SizeCalculatorVisitor fork() {
+        return new SizeCalculatorVisitor();
+    }
+
+    @Override
+    public void merge(SizeCalculatorVisitor partial) {
+        totalSize += partial.totalSize;
+    }
+}
+
+// Operation 2: Scan for Malware (Added later without touching file classes!)
+class MalwareScannerVisitor implements ReducibleVisitor<MalwareScannerVisitor> {
+    private final boolean verbose;
+    private int filesScanned = 0;
+
+    public MalwareScannerVisitor() {
+        this(true);
+    }
+
+    public MalwareScannerVisitor(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void visit(VideoFile videoFile) {
+        filesScanned++;
+        if (verbose) {
+            System.out.println("[SCAN] Checking video codec signature for: " + videoFile.getFileName());
+        }
+    }
+
+    @Override
+    public void visit(AudioFile audioFile) {
+        filesScanned++;
+        if (verbose) {
+            System.out.println("[SCAN] Checking audio bitrate headers for: " + audioFile.getFileName());
+        }
+    }
+
+    @Override
+    public void visit(DirectoryNode directoryNode) {
+        enterDirectory(directoryNode);
         for (StorageNode childNode : directoryNode.getChildrenNodes()) {
             childNode.accept(this);
         }
+        exitDirectory(directoryNode);
     }
 
-    public int getTotalSize() {
-        return totalSize;
+    @Override
+    public void enterDirectory(DirectoryNode directoryNode) {
+        if (verbose) {
+            System.out.println("[SCAN] Entering directory: " + directoryNode.getChildrenNodes().size() + " files found.");
+        }
+    }
+
+    public int getFilesScanned() { return filesScanned; }
+
+    @Override
+    public MalwareScannerVisitor fork() {
+        return new MalwareScannerVisitor(verbose);
+    }
+
+    @Override
+    public void merge(MalwareScannerVisitor partial) {
+        filesScanned += partial.filesScanned;
     }
 }
 
-// Operation 2: Scan for Malware (Added later without touching file classes!)
-class MalwareScannerVisitor implements StorageVisitor {
+// --- 5. PARALLEL TRAVERSAL ENGINE (Fork/Join over subtrees) ---
+// Each directory becomes a RecursiveTask that works on its own forked visitor; idle workers
+// steal queued subtrees, and partial results are merged back at every directory.
+// Sequential fallback: a child directory is only forked while the local queue is nearly empty
+// (the classic surplus-task heuristic), otherwise it is walked inline by the visitor's own
+// recursion. Child lists longer than `splitThreshold` are additionally split in halves.
+class ParallelStorageTraversal {
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+
+    public ParallelStorageTraversal() {
+        this(ForkJoinPool.commonPool(), 4_096);
+    }
+
+    public ParallelStorageTraversal(ForkJoinPool pool, int splitThreshold) {
+        this.pool = pool;
+        this.splitThreshold = splitThreshold;
+    }
+
+    // Returns a visitor holding the merged result for the whole tree; `visitor` is only used
+    // as a prototype and is left untouched.
+    public <V extends ReducibleVisitor<V>> V traverse(DirectoryNode root, V visitor) {
+        return pool.invoke(new DirectoryTask<>(root, visitor.fork(), 0, root.getChildrenNodes().size(), true));
+    }
+
+    @SuppressWarnings("serial") // Serializable only via ForkJoinTask; tasks never leave the pool
+    private final class DirectoryTask<V extends ReducibleVisitor<V>> extends RecursiveTask<V> {
+        private final DirectoryNode directory;
+        private final V local;
+        private final int from;
+        private final int to;
+        private final boolean enter;
+
+        DirectoryTask(DirectoryNode directory, V local, int from, int to, boolean enter) {
+            this.directory = directory;
+            this.local = local;
+            this.from = from;
+            this.to = to;
+            this.enter = enter;
+        }
+
+        @Override
+        protected V compute() {
+            if (enter) {
+                local.enterDirectory(directory);
+            }
+            if (to - from > splitThreshold) {
+                int mid = (from + to) >>> 1;
+                DirectoryTask<V> right = new DirectoryTask<>(directory, local.fork(), mid, to, false);
+                right.fork();
+                local.merge(new DirectoryTask<>(directory, local.fork(), from, mid, false).compute());
+                local.merge(right.join());
+                return exit(local);
+            }
+
+            List<DirectoryTask<V>> forked = new ArrayList<>();
+            // Double dispatch again, so files and directories are told apart without instanceof.
+            StorageVisitor dispatcher = new StorageVisitor() {
+                @Override
+                public void visit(VideoFile videoFile) { local.visit(videoFile); }
+
+                @Override
+                public void visit(AudioFile audioFile) { local.visit(audioFile); }
+
+                @Override
+                public void visit(DirectoryNode child) {
+                    if (getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+                        DirectoryTask<V> task = new DirectoryTask<>(child, local.fork(), 0, child.getChildrenNodes().size(), true);
+                        task.fork();
+                        forked.add(task);
+                    } else {
+                        child.accept(local);
+                    }
+                }
+            };
+            List<StorageNode> children = directory.getChildrenNodes();
+            for (int i = from; i < to; i++) {
+                children.get(i).accept(dispatcher);
+            }
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                local.merge(forked.get(i).join());
+            }
+            return exit(local);
+        }
+
+        // Only the task that entered the directory leaves it, and only after every subtask has joined.
+        private V exit(V visitor) {
+            if (enter) {
+                visitor.exitDirectory(directory);
+            }
+            return visitor;
+        }
+    }
+}
+
+// --- 6. INCREMENTAL SCANNING (Persistent, content-keyed results) ---
+enum ScanVerdict { CLEAN, INFECTED }
+
+// Open-addressing hash index in a memory-mapped file, so results survive restarts and a
+// lookup is a couple of memory reads. Header = [magic][capacity][size][scan epoch], slot =
+// [path hash: long][content hash: long][verdict: int][last seen epoch: int]. Path hash 0 marks
+// an empty slot, verdict PENDING a slot mid-update. The table doubles into a new file at 70% load.
+class ScanResultIndex implements AutoCloseable {
+    private static final int MAGIC = 0x5CA11DE5;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 24;
+    private static final int PENDING = -1;
+
+    private final Path file;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+    private int epoch;
+
+    public ScanResultIndex(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            table = map(file, Files.size(file));
+            if (table.getInt(0) != MAGIC) {
+                throw new IOException("not a scan index: " + file);
+            }
+            capacity = table.getInt(4);
+            size = table.getInt(8);
+            epoch = table.getInt(12);
+        } else {
+            createTable(1 << 12);
+        }
+    }
+
+    // Starts a new scan generation; entries not looked up or recorded before purgeUnseen() go.
+    public synchronized void beginScan() {
+        epoch++;
+        table.putInt(12, epoch);
+    }
+
+    // Null when the file was never scanned or its content changed since. A hit marks the
+    // entry as seen in the current scan.
+    public synchronized ScanVerdict lookup(long pathHash, long contentHash) {
+        int base = (int) slotOffset(findSlot(pathHash));
+        int verdict = table.getInt(base + 16);
+        if (table.getLong(base) == 0 || verdict == PENDING || table.getLong(base + 8) != contentHash) {
+            return null;
+        }
+        table.putInt(base + 20, epoch);
+        return ScanVerdict.values()[verdict];
+    }
+
+    // The slot is tombstoned (PENDING) before the content hash changes, so a crash halfway
+    // through leaves a miss that gets rescanned, never new content paired with the old verdict.
+    // A new slot is written before the size is bumped, so the header never counts an empty slot.
+    public synchronized void record(long pathHash, long contentHash, ScanVerdict verdict) throws IOException {
+        int base = (int) slotOffset(findSlot(pathHash));
+        boolean added = table.getLong(base) == 0;
+        if (added && (size + 1) * 10L > capacity * 7L) {
+            rebuild(capacity * 2, false);
+            base = (int) slotOffset(findSlot(pathHash));
+        }
+        table.putInt(base + 16, PENDING);
+        table.putLong(base + 8, contentHash);
+        table.putLong(base, pathHash);
+        table.putInt(base + 20, epoch);
+        table.putInt(base + 16, verdict.ordinal());
+        if (added) {
+            size++;
+            table.putInt(8, size);
+        }
+    }
+
+    // Drops every entry the current scan never touched: deleted files, and files that lost their
+    // digest. Only call this after a scan that covered the whole volume. Returns the number purged.
+    public synchronized int purgeUnseen() throws IOException {
+        int live = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = (int) slotOffset(slot);
+            if (table.getLong(base) != 0 && table.getInt(base + 16) != PENDING && table.getInt(base + 20) == epoch) {
+                live++;
+            }
+        }
+        int purged = size - live;
+        if (purged > 0) {
+            rebuild(capacity, true);
+        }
+        return purged;
+    }
+
+    public synchronized int size() { return size; }
+
+    @Override
+    public synchronized void close() {
+        table.force();
+    }
+
+    // FNV-1a over the path; 0 is reserved for empty slots.
+    public static long pathHash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int findSlot(long pathHash) {
+        int mask = capacity - 1;
+        int slot = (int) (pathHash ^ (pathHash >>> 32)) & mask;
+        while (true) {
+            long stored = table.getLong((int) slotOffset(slot));
+            if (stored == 0 || stored == pathHash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Copies live entries into a fresh file and swaps it in atomically. Half-written (PENDING)
+    // entries are dropped: they would be rescanned anyway.
+    private void rebuild(int newCapacity, boolean dropUnseen) throws IOException {
+        MappedByteBuffer old = table;
+        int oldCapacity = capacity;
+        Path temp = file.resolveSibling(file.getFileName() + ".rebuild");
+        Files.deleteIfExists(temp);
+        table = map(temp, HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+        capacity = newCapacity;
+        size = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = HEADER_BYTES + slot * SLOT_BYTES;
+            long pathHash = old.getLong(base);
+            int verdict = old.getInt(base + 16);
+            int seen = old.getInt(base + 20);
+            if (pathHash != 0 && verdict != PENDING && (!dropUnseen || seen == epoch)) {
+                int target = (int) slotOffset(findSlot(pathHash));
+                table.putLong(target, pathHash);
+                table.putLong(target + 8, old.getLong(base + 8));
+                table.putInt(target + 16, verdict);
+                table.putInt(target + 20, seen);
+                size++;
+            }
+        }
+        writeHeader();
+        table.force();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void createTable(int initialCapacity) throws IOException {
+        table = map(file, HEADER_BYTES + (long) initialCapacity * SLOT_BYTES);
+        capacity = initialCapacity;
+        size = 0;
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        table.putInt(0, MAGIC);
+        table.putInt(4, capacity);
+        table.putInt(8, size);
+        table.putInt(12, epoch);
+    }
+
+    private static long slotOffset(int slot) {
+        return HEADER_BYTES + (long) slot * SLOT_BYTES;
+    }
+
+    private static MappedByteBuffer map(Path path, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+}
+
+// The walk itself is cheap: it only compares (path, content hash) against the index.
+// Files that are new or changed go to a bounded worker pool for the expensive inspection;
+// when the queue is full the walking thread scans one itself, which throttles the walk.
+// `root` is taken to be the whole volume: results for files no longer in it are purged.
+class IncrementalMalwareScanner implements TraversableVisitor {
+    private final ScanResultIndex index;
+    private final Set<Long> knownBadContent;
+    private final int workers;
+
+    private final Deque<String> path = new ArrayDeque<>();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final List<String> infected = Collections.synchronizedList(new ArrayList<>());
+    private ThreadPoolExecutor pool;
+
+    public IncrementalMalwareScanner(ScanResultIndex index, Set<Long> knownBadContent, int workers) {
+        this.index = index;
+        this.knownBadContent = knownBadContent;
+        this.workers = workers;
+    }
+
+    public void scan(DirectoryNode root) {
+        skipped.reset();
+        scanned.reset();
+        infected.clear();
+        pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+        index.beginScan();
+        boolean finished = false;
+        try {
+            IterativeStorageTraversal.walk(root, this);
+        } finally {
+            pool.shutdown();
+            try {
+                finished = pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Only reached when the walk completed. If workers may still be recording, "not seen"
+        // could mean "not recorded yet", so purging would throw away fresh results.
+        int purged = 0;
+        if (!finished) {
+            System.out.println("[WARN] Scan interrupted before all workers finished; stale results kept");
+        } else {
+            try {
+                purged = index.purgeUnseen();
+            } catch (IOException e) {
+                System.out.println("[WARN] Could not purge stale scan results: " + e.getMessage());
+            }
+        }
+        System.out.println("[INCREMENTAL SCAN] " + scanned.sum() + " scanned, " + skipped.sum()
+                + " unchanged and skipped, " + infected.size() + " infected " + infected
+                + ", " + purged + " stale results purged");
+    }
+
     @Override
     public void visit(VideoFile videoFile) {
-        System.out.println("[SCAN] Checking video codec signature for: " + videoFile.getFileName());
+        check(videoFile.getFileName(), videoFile.getContentHash(), videoFile.getSizeInMegabytes());
     }
 
     @Override
     public void visit(AudioFile audioFile) {
-        System.out.println("[SCAN] Checking audio bitrate headers for: " + audioFile.getFileName());
+        check(audioFile.getFileName(), audioFile.getContentHash(), audioFile.getSizeInMegabytes());
     }
 
     @Override
     public void visit(DirectoryNode directoryNode) {
-        System.out.println("[SCAN] Entering directory: " + directoryNode.getChildrenNodes().size() + " files found.");
+        enterDirectory(directoryNode);
         for (StorageNode childNode : directoryNode.getChildrenNodes()) {
             childNode.accept(this);
         }
+        exitDirectory(directoryNode);
+    }
+
+    @Override
+    public void enterDirectory(DirectoryNode directoryNode) {
+        path.addLast(directoryNode.getDirectoryName());
+    }
+
+    @Override
+    public void exitDirectory(DirectoryNode directoryNode) {
+        path.removeLast();
+    }
+
+    private void check(String fileName, long contentHash, int sizeInMegabytes) {
+        String filePath = String.join("/", path) + "/" + fileName;
+        long pathHash = ScanResultIndex.pathHash(filePath);
+        boolean trackable = ContentHash.isKnown(contentHash); // No digest: can't prove it unchanged
+        ScanVerdict previous = trackable ? index.lookup(pathHash, contentHash) : null;
+        if (previous != null) {
+            skipped.increment();
+            if (previous == ScanVerdict.INFECTED) {
+                infected.add(filePath);
+            }
+            return;
+        }
+        pool.execute(() -> {
+            ScanVerdict verdict = inspect(contentHash, sizeInMegabytes);
+            scanned.increment();
+            if (verdict == ScanVerdict.INFECTED) {
+                infected.add(filePath);
+            }
+            if (!trackable) {
+                return;
+            }
+            try {
+                index.record(pathHash, contentHash, verdict);
+            } catch (IOException e) {
+                System.out.println("[WARN] Could not persist scan result for " + filePath + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // The expensive part: reading the file and matching signatures. Simulated as ~1 ms of I/O.
+    protected ScanVerdict inspect(long contentHash, int sizeInMegabytes) {
+        try { Thread.sleep(1); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        return knownBadContent.contains(contentHash) ? ScanVerdict.INFECTED : ScanVerdict.CLEAN;
+    }
+}
+
+// --- 7. ITERATIVE & STREAMING TRAVERSAL (No recursion, no full tree in memory) ---
+// Explicit stack of child iterators: memory is O(depth) and depth is limited only by the heap.
+class IterativeStorageTraversal {
+    public static void walk(DirectoryNode root, TraversableVisitor visitor) {
+        Deque<Iterator<StorageNode>> openIterators = new ArrayDeque<>();
+        Deque<DirectoryNode> openDirectories = new ArrayDeque<>();
+        StorageVisitor dispatcher = new StorageVisitor() {
+            @Override
+            public void visit(VideoFile videoFile) { visitor.visit(videoFile); }
+
+            @Override
+            public void visit(AudioFile audioFile) { visitor.visit(audioFile); }
+
+            @Override
+            public void visit(DirectoryNode directoryNode) {
+                visitor.enterDirectory(directoryNode);
+                openDirectories.push(directoryNode);
+                openIterators.push(directoryNode.getChildrenNodes().iterator());
+            }
+        };
+
+        root.accept(dispatcher);
+        while (!openIterators.isEmpty()) {
+            Iterator<StorageNode> children = openIterators.peek();
+            if (children.hasNext()) {
+                children.next().accept(dispatcher);
+            } else {
+                openIterators.pop();
+                visitor.exitDirectory(openDirectories.pop());
+            }
+        }
     }
 }
 
-// --- 5. TESTER (The Client) ---
+// Streams a real directory tree into a visitor without building it first. A producer thread
+// walks the file system and hands batches of events across a two-batch queue; directories
+// arrive as empty shells, so memory is O(depth + batch) however big the tree is.
+// The file system has no content digest to offer, so streamed files carry ContentHash.UNKNOWN
+// and anything keyed on the digest (ScanResultIndex) rescans them. Files that can't be read are
+// collected, not dropped: getUnreadableEntries() lists them after each walk. One walk at a time.
+class StreamingStorageWalker {
+    private static final Set<String> VIDEO_EXTENSIONS = Set.of("mp4", "mkv", "mov", "avi", "webm");
+    private static final Set<String> AUDIO_EXTENSIONS = Set.of("mp3", "wav", "flac", "aac", "m4a", "ogg");
+    private static final List<Consumer<TraversableVisitor>> END_OF_WALK = new ArrayList<>();
+
+    private final int batchSize;
+    private volatile List<Path> unreadable = List.of();
+
+    public StreamingStorageWalker(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void walk(Path root, TraversableVisitor visitor) throws IOException {
+        BlockingQueue<List<Consumer<TraversableVisitor>>> batches = new ArrayBlockingQueue<>(2);
+        Throwable[] failure = new Throwable[1]; // Written by the producer, read after join()
+        List<Path> skipped = new ArrayList<>();  // Same
+        Thread producer = new Thread(() -> produce(root, batches, failure, skipped), "storage-walker");
+        producer.setDaemon(true);
+        producer.start();
+        try {
+            for (List<Consumer<TraversableVisitor>> batch = batches.take(); batch != END_OF_WALK; batch = batches.take()) {
+                for (Consumer<TraversableVisitor> event : batch) {
+                    event.accept(visitor);
+                }
+            }
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("storage walk interrupted", e);
+        } finally {
+            producer.interrupt(); // Unblocks the producer if the visitor threw
+        }
+        unreadable = List.copyOf(skipped);
+        if (failure[0] instanceof IOException) {
+            throw (IOException) failure[0];
+        }
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        }
+        if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        }
+    }
+
+    // Files the last walk could not read (permissions, vanished mid-walk, ...).
+    public List<Path> getUnreadableEntries() {
+        return unreadable;
+    }
+
+    private void produce(Path root, BlockingQueue<List<Consumer<TraversableVisitor>>> batches, Throwable[] failure,
+                         List<Path> skipped) {
+        List<Consumer<TraversableVisitor>> batch = new ArrayList<>(batchSize);
+        Deque<DirectoryNode> open = new ArrayDeque<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    DirectoryNode shell = new DirectoryNode(String.valueOf(dir.getFileName()));
+                    open.push(shell);
+                    return emit(visitor -> visitor.enterDirectory(shell));
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String name = file.getFileName().toString();
+                    String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+                    int megabytes = (int) Math.min(Integer.MAX_VALUE, (attributes.size() + (1 << 20) - 1) >> 20);
+                    // No digest: size + mtime is not one (an edit can keep both), so never pass it off as one
+                    if (VIDEO_EXTENSIONS.contains(extension)) {
+                        VideoFile video = new VideoFile(name, megabytes, ContentHash.UNKNOWN);
+                        return emit(visitor -> visitor.visit(video));
+                    }
+                    if (AUDIO_EXTENSIONS.contains(extension)) {
+                        AudioFile audio = new AudioFile(name, megabytes, ContentHash.UNKNOWN);
+                        return emit(visitor -> visitor.visit(audio));
+                    }
+                    return FileVisitResult.CONTINUE; // Not media: not part of the storage tree
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    skipped.add(file); // Not fatal, but reported
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    DirectoryNode shell = open.pop();
+                    FileVisitResult next = emit(visitor -> visitor.exitDirectory(shell));
+                    if (e != null) {
+                        failure[0] = e; // Listing the directory failed midway: same as a walk error
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return next;
+                }
+
+                private FileVisitResult emit(Consumer<TraversableVisitor> event) {
+                    batch.add(event);
+                    if (batch.size() < batchSize) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    boolean delivered = hand(batches, new ArrayList<>(batch));
+                    batch.clear();
+                    return delivered ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+            });
+        } catch (IOException | RuntimeException | Error e) {
+            failure[0] = e;
+        } finally {
+            // Whatever happened, the consumer must be released from batches.take()
+            if (hand(batches, batch)) {
+                hand(batches, END_OF_WALK);
+            }
+        }
+    }
+
+    private static boolean hand(BlockingQueue<List<Consumer<TraversableVisitor>>> batches,
+                                List<Consumer<TraversableVisitor>> batch) {
+        try {
+            batches.put(batch);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
+
+// --- 8. VISITOR FUSION (N operations, one pass) ---
+// A visitor made of visitors: every node is fetched once and handed to each of them, so N
+// analyses share one round of pointer chasing and cache misses instead of paying for N.
+// In parallel mode events are buffered and each batch is replayed to all visitors at once,
+// one visitor per worker; every visitor still sees every node, in tree order, on one thread at a time.
+class CompositeVisitor implements TraversableVisitor {
+    private final List<TraversableVisitor> visitors;
+    private final int batchSize;
+    private final List<Consumer<TraversableVisitor>> pending = new ArrayList<>();
+
+    public CompositeVisitor(List<? extends TraversableVisitor> visitors) {
+        this(visitors, 0);
+    }
+
+    private CompositeVisitor(List<? extends TraversableVisitor> visitors, int batchSize) {
+        this.visitors = List.copyOf(visitors);
+        this.batchSize = batchSize;
+    }
+
+    public static CompositeVisitor parallel(List<? extends TraversableVisitor> visitors, int batchSize) {
+        return new CompositeVisitor(visitors, batchSize);
+    }
+
+    // Drives one iterative walk and makes sure buffered events reach every visitor.
+    public void run(DirectoryNode root) {
+        IterativeStorageTraversal.walk(root, this);
+        flush();
+    }
+
+    // Files are by far the most common node, so the inline mode skips the event object entirely.
+    @Override
+    public void visit(VideoFile videoFile) {
+        if (batchSize > 0) {
+            buffer(visitor -> visitor.visit(videoFile));
+            return;
+        }
+        for (TraversableVisitor visitor : visitors) {
+            visitor.visit(videoFile);
+        }
+    }
+
+    @Override
+    public void visit(AudioFile audioFile) {
+        if (batchSize > 0) {
+            buffer(visitor -> visitor.visit(audioFile));
+            return;
+        }
+        for (TraversableVisitor visitor : visitors) {
+            visitor.visit(audioFile);
+        }
+    }
+
+    @Override
+    public void visit(DirectoryNode directoryNode) {
+        enterDirectory(directoryNode);
+        for (StorageNode childNode : directoryNode.getChildrenNodes()) {
+            childNode.accept(this);
+        }
+        exitDirectory(directoryNode);
+    }
+
+    @Override
+    public void enterDirectory(DirectoryNode directoryNode) { dispatch(visitor -> visitor.enterDirectory(directoryNode)); }
+
+    @Override
+    public void exitDirectory(DirectoryNode directoryNode) { dispatch(visitor -> visitor.exitDirectory(directoryNode)); }
+
+    // Parallel mode only: pushes any buffered events out. `run` calls this for you.
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Consumer<TraversableVisitor>> batch = List.copyOf(pending);
+        pending.clear();
+        List<Callable<Void>> replays = new ArrayList<>();
+        for (TraversableVisitor visitor : visitors) {
+            replays.add(() -> {
+                for (Consumer<TraversableVisitor> event : batch) {
+                    event.accept(visitor);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> replay : ForkJoinPool.commonPool().invokeAll(replays)) {
+                replay.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fused traversal interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A fused visitor failed", e.getCause());
+        }
+    }
+
+    private void dispatch(Consumer<TraversableVisitor> event) {
+        if (batchSize > 0) {
+            buffer(event);
+            return;
+        }
+        for (TraversableVisitor visitor : visitors) {
+            event.accept(visitor);
+        }
+    }
+
+    private void buffer(Consumer<TraversableVisitor> event) {
+        pending.add(event);
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+}
+
+// --- 9. TESTER (The Client) ---
 public class VisitorPattern {
     public static void main(String[] args) {
         // 1. Build the data structure (A simple file tree)
@@ -180,5 +1097,203 @@ public class VisitorPattern {
         System.out.println("\n--- Executing Malware Scan ---");
         MalwareScannerVisitor malwareScanner = new MalwareScannerVisitor();
         rootDirectory.accept(malwareScanner);
+
+        // 4. Same visitors, driven by the fork/join engine over a tree with ~1M nodes
+        System.out.println("\n--- Parallel Traversal (" + Runtime.getRuntime().availableProcessors() + " cores) ---");
+        DirectoryNode hugeTree = buildTree(3, 100, 100);
+        ParallelStorageTraversal engine = new ParallelStorageTraversal();
+        for (int round = 0; round < 3; round++) { // A few rounds so the JIT has warmed up
+            long start = System.nanoTime();
+            MalwareScannerVisitor sequential = new MalwareScannerVisitor(false);
+            hugeTree.accept(sequential);
+            long sequentialMicros = (System.nanoTime() - start) / 1_000;
+
+            start = System.nanoTime();
+            MalwareScannerVisitor parallel = engine.traverse(hugeTree, new MalwareScannerVisitor(false));
+            long parallelMicros = (System.nanoTime() - start) / 1_000;
+
+            System.out.println("Round " + round + ": sequential scan of " + sequential.getFilesScanned() + " files in "
+                    + sequentialMicros + " us | parallel scan of " + parallel.getFilesScanned() + " files in "
+                    + parallelMicros + " us");
+        }
+
+        // 5. Memoized aggregates: the first query walks the tree, repeats are O(1), and an
+        // insert only dirties the path from the new node up to the root.
+        System.out.println("\n--- Memoized Aggregates ---");
+        long start = System.nanoTime();
+        System.out.println("Cold:   " + hugeTree.getAggregate() + " (" + (System.nanoTime() - start) / 1_000 + " us)");
+        start = System.nanoTime();
+        SizeCalculatorVisitor warm = new SizeCalculatorVisitor();
+        hugeTree.accept(warm);
+        System.out.println("Warm:   " + warm.getTotalSize() + " MB via SizeCalculatorVisitor (" + (System.nanoTime() - start) / 1_000 + " us)");
+
+        DirectoryNode archive = new DirectoryNode("Archive");
+        DirectoryNode exports = new DirectoryNode("Exports");
+        archive.addNode(exports);
+        hugeTree.addNode(archive);
+        hugeTree.getAggregate();
+        exports.addNode(new VideoFile("huge_export.mov", Integer.MAX_VALUE)); // Would overflow an int total
+        start = System.nanoTime();
+        System.out.println("Update: " + hugeTree.getAggregate() + " (" + (System.nanoTime() - start) / 1_000 + " us)");
+
+        try {
+            demoIncrementalScan();
+            demoDeepAndStreamingTraversal();
+            benchmarkVisitorFusion();
+        } catch (IOException e) {
+            System.out.println("[DEMO] Storage demo failed: " + e.getMessage());
+        }
+    }
+
+    // Indicative wall-clock numbers (best of 5 after warm-up), not a JMH harness.
+    private static void benchmarkVisitorFusion() {
+        System.out.println("\n--- Visitor Fusion: 2 visitors over ~1M nodes ---");
+        DirectoryNode tree = buildTree(3, 100, 100);
+        long bestSequential = Long.MAX_VALUE, bestFused = Long.MAX_VALUE, bestParallel = Long.MAX_VALUE;
+        boolean identical = true;
+        for (int round = 0; round < 8; round++) {
+            SizeCalculatorVisitor size = new SizeCalculatorVisitor();
+            MalwareScannerVisitor scan = new MalwareScannerVisitor(false);
+            long start = System.nanoTime();
+            IterativeStorageTraversal.walk(tree, size);
+            IterativeStorageTraversal.walk(tree, scan);
+            long sequential = System.nanoTime() - start;
+
+            SizeCalculatorVisitor fusedSize = new SizeCalculatorVisitor();
+            MalwareScannerVisitor fusedScan = new MalwareScannerVisitor(false);
+            start = System.nanoTime();
+            new CompositeVisitor(List.of(fusedSize, fusedScan)).run(tree);
+            long fused = System.nanoTime() - start;
+
+            SizeCalculatorVisitor parallelSize = new SizeCalculatorVisitor();
+            MalwareScannerVisitor parallelScan = new MalwareScannerVisitor(false);
+            start = System.nanoTime();
+            CompositeVisitor.parallel(List.of(parallelSize, parallelScan), 4_096).run(tree);
+            long parallel = System.nanoTime() - start;
+
+            if (round >= 3) {
+                bestSequential = Math.min(bestSequential, sequential);
+                bestFused = Math.min(bestFused, fused);
+                bestParallel = Math.min(bestParallel, parallel);
+            }
+            identical &= fusedSize.getTotalSize() == size.getTotalSize() && parallelSize.getTotalSize() == size.getTotalSize()
+                    && fusedScan.getFilesScanned() == scan.getFilesScanned()
+                    && parallelScan.getFilesScanned() == scan.getFilesScanned();
+        }
+        System.out.println("Results identical: " + identical);
+        System.out.println("Two separate passes: " + bestSequential / 1_000 + " us");
+        System.out.println("Fused single pass:   " + bestFused / 1_000 + " us");
+        System.out.println("Fused, parallel:     " + bestParallel / 1_000 + " us ("
+                + Runtime.getRuntime().availableProcessors() + " cores)");
+    }
+
+    private static void demoDeepAndStreamingTraversal() throws IOException {
+        // A pathological 100,000-level directory chain, one file per level
+        System.out.println("\n--- Deep Tree (100,000 levels) ---");
+        DirectoryNode deepRoot = new DirectoryNode("level0");
+        DirectoryNode current = deepRoot;
+        for (int level = 1; level < 100_000; level++) {
+            DirectoryNode next = new DirectoryNode("level" + level);
+            current.addNode(new AudioFile("note.mp3", 1));
+            current.addNode(next);
+            current = next;
+        }
+        try {
+            deepRoot.accept(new MalwareScannerVisitor(false));
+            System.out.println("Recursive accept: finished");
+        } catch (StackOverflowError e) {
+            System.out.println("Recursive accept: StackOverflowError");
+        }
+        MalwareScannerVisitor iterative = new MalwareScannerVisitor(false);
+        IterativeStorageTraversal.walk(deepRoot, iterative);
+        System.out.println("Iterative walk:   " + iterative.getFilesScanned() + " files scanned");
+        System.out.println("Aggregate:        " + deepRoot.getAggregate());
+
+        // A real directory tree streamed straight into the visitors
+        System.out.println("\n--- Streaming Walk of a Real Directory ---");
+        Path mediaRoot = Files.createTempDirectory("media");
+        for (int album = 0; album < 5; album++) {
+            Path albumDir = Files.createDirectories(mediaRoot.resolve("Album" + album));
+            for (int track = 0; track < 20; track++) {
+                Path file = albumDir.resolve(track % 4 == 0 ? "video" + track + ".mp4" : "track" + track + ".mp3");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    channel.write(java.nio.ByteBuffer.wrap(new byte[] { 1 }), 3L * 1024 * 1024 - 1); // Sparse 3 MB
+                }
+            }
+            Files.writeString(albumDir.resolve("cover.txt"), "not media");
+        }
+        SizeCalculatorVisitor streamedSize = new SizeCalculatorVisitor();
+        StreamingStorageWalker walker = new StreamingStorageWalker(16);
+        walker.walk(mediaRoot, streamedSize);
+        MalwareScannerVisitor streamedScan = new MalwareScannerVisitor(false);
+        walker.walk(mediaRoot, streamedScan);
+        System.out.println("Streamed: " + streamedSize.getTotalSize() + " MB across "
+                + streamedScan.getFilesScanned() + " media files, " + walker.getUnreadableEntries().size()
+                + " unreadable entries");
+        for (Path skipped : walker.getUnreadableEntries()) {
+            System.out.println("[WARN] Could not read " + skipped);
+        }
+    }
+
+    // A 2,000-file library scanned three times: cold, after 20 files changed, and after a restart
+    // that also finds Folder19 deleted. One voice memo has no digest, so it is rescanned every time.
+    private static void demoIncrementalScan() throws IOException {
+        System.out.println("\n--- Incremental Malware Scan ---");
+        Path indexFile = Files.createTempDirectory("scan-cache").resolve("scan.idx");
+        Set<Long> signatures = Set.of(mediaContentHash(7, 1)); // Version 1 of file 7 is a known-bad payload
+
+        ScanResultIndex index = new ScanResultIndex(indexFile);
+        IncrementalMalwareScanner scanner = new IncrementalMalwareScanner(index, signatures, 4);
+        long start = System.nanoTime();
+        scanner.scan(mediaLibrary(0, 20));
+        System.out.println("Cold scan:    " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        start = System.nanoTime();
+        scanner.scan(mediaLibrary(1, 20)); // Next snapshot: files 0..19 were re-encoded
+        System.out.println("Delta scan:   " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        index.close();
+
+        try (ScanResultIndex reopened = new ScanResultIndex(indexFile)) { // Simulated service restart
+            start = System.nanoTime();
+            new IncrementalMalwareScanner(reopened, signatures, 4).scan(mediaLibrary(1, 19));
+            System.out.println("After restart: " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                    + reopened.size() + " results on disk");
+        }
+    }
+
+    // Snapshot of a media store: `folders` folders x 100 files. In snapshot `version`, files 0..19
+    // of Folder0 carry new content; everything else is byte-for-byte unchanged.
+    private static DirectoryNode mediaLibrary(int version, int folders) {
+        DirectoryNode root = new DirectoryNode("Internal Storage");
+        root.addNode(new AudioFile("voice_memo.m4a", 2)); // Legacy entry: the store has no digest for it
+        for (int folder = 0; folder < folders; folder++) {
+            DirectoryNode directory = new DirectoryNode("Folder" + folder);
+            for (int file = 0; file < 100; file++) {
+                long content = mediaContentHash(file, file < 20 && folder == 0 ? version : 0);
+                directory.addNode(file % 2 == 0 ? new VideoFile("clip" + file + ".mp4", 50, content)
+                                                : new AudioFile("track" + file + ".mp3", 5, content));
+            }
+            root.addNode(directory);
+        }
+        return root;
+    }
+
+    private static long mediaContentHash(int file, int version) {
+        return ScanResultIndex.pathHash("content-" + file + "-v" + version);
+    }
+
+    // A balanced tree: `fanOut` subdirectories per level and `filesPerDirectory` files in each leaf directory.
+    static DirectoryNode buildTree(int depth, int fanOut, int filesPerDirectory) {
+        DirectoryNode directory = new DirectoryNode("dir");
+        if (depth == 0) {
+            for (int i = 0; i < filesPerDirectory; i++) {
+                directory.addNode(i % 2 == 0 ? new VideoFile("clip.mp4", 1) : new AudioFile("song.mp3", 1));
+            }
+            return directory;
+        }
+        for (int i = 0; i < fanOut; i++) {
+            directory.addNode(buildTree(depth - 1, depth == 1 ? fanOut : 10, filesPerDirectory));
+        }
+        return directory;
     }
 }
\ No newline at end of file
@@ -5,18 +5,66 @@
  * 1. Private Constructor: Prevents direct 'new' calls.
  * 2. Private Static Instance: Holds the single copy.
  * 3. Public Static Method: The entry point (getInstance).
+ * 4. A singleton should own the scarce resource, not BE it: one global pool
+ * manager, many pooled connections behind it.
+ * 5. Prefer the holder idiom (or Lazy<T>) for heavy instances: nothing is built until first
+ * use, and a prewarm can take it off the startup path entirely.
  */
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 // --- 1. THE PRODUCTION STANDARD (Double-Checked Locking) ---
+// The singleton is now the pool MANAGER, not a connection: one global entry point that
+// hands out many connections, so callers no longer queue up behind a single handle.
 class DatabaseConnection {
     // 'volatile' prevents memory write issues in multi-threading
     private static volatile DatabaseConnection instance;
 
+    private final ConnectionPool pool;
+
     private DatabaseConnection() {
         // Pointer: Guard against Reflection API attacks
         if (instance != null) {
             throw new RuntimeException("Use getInstance() method!");
         }
+        pool = new ConnectionPool.Builder(new InMemoryDriver(5, 200)).maxSize(8).minIdle(2).build();
     }
 
     public static DatabaseConnection getInstance() {
@@ -29,19 +77,695 @@ class DatabaseConnection {
         }
         return instance;
     }
+
+    // Borrow a connection; close() it (try-with-resources) to hand it back.
+    public PooledConnection getConnection() throws TimeoutException, InterruptedException {
+        return pool.borrow(Duration.ofSeconds(5));
+    }
+
+    public PooledConnection getConnection(Duration timeout) throws TimeoutException, InterruptedException {
+        return pool.borrow(timeout);
+    }
+
+    public String poolStats() {
+        return pool.stats();
+    }
+}
+
+// --- 2. THE POOL (Bounded, Lock-Free Fast Path) ---
+// A physical connection as the driver sees it.
+interface PhysicalConnection {
+    String execute(String sql);
+    boolean isValid();
+    void close();
+}
+
+interface DatabaseDriver {
+    PhysicalConnection connect();
+}
+
+// Local fake: connecting costs a few ms, each query parks for a fixed time like a network
+// round trip. Enough to benchmark the pool without a database server.
+class InMemoryDriver implements DatabaseDriver {
+    private final int connectMillis;
+    private final int queryMicros;
+    private final AtomicInteger opened = new AtomicInteger();
+
+    InMemoryDriver(int connectMillis, int queryMicros) {
+        this.connectMillis = connectMillis;
+        this.queryMicros = queryMicros;
+    }
+
+    @Override
+    public PhysicalConnection connect() {
+        int id = opened.incrementAndGet();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(connectMillis));
+        return new PhysicalConnection() {
+            private volatile boolean open = true;
+
+            @Override
+            public String execute(String sql) {
+                if (!open) throw new IllegalStateException("Connection " + id + " is closed");
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(queryMicros));
+                return "conn-" + id + " -> OK (" + sql + ")";
+            }
+
+            @Override
+            public boolean isValid() { return open; }
+
+            @Override
+            public void close() { open = false; }
+        };
+    }
+
+    int connectionsOpened() { return opened.get(); }
+}
+
+// What callers hold. Closing it returns the physical connection to the pool; a closed handle
+// refuses further use, so a stale reference can't run queries on someone else's borrow.
+class PooledConnection implements AutoCloseable {
+    final PhysicalConnection physical;
+    final long createdAt = System.nanoTime();
+    volatile long lastUsedAt = createdAt;
+    volatile long borrowedAt;
+    volatile Throwable borrowSite; // Only captured when leak detection is on
+    volatile boolean leakReported;
+    private final AtomicBoolean borrowed = new AtomicBoolean();
+    private final ConnectionPool pool;
+
+    PooledConnection(PhysicalConnection physical, ConnectionPool pool) {
+        this.physical = physical;
+        this.pool = pool;
+    }
+
+    boolean markBorrowed() { return borrowed.compareAndSet(false, true); }
+
+    public String execute(String sql) {
+        if (!borrowed.get()) throw new IllegalStateException("Connection already returned to the pool");
+        return physical.execute(sql);
+    }
+
+    @Override
+    public void close() {
+        if (borrowed.compareAndSet(true, false)) { // Idempotent: double close is harmless
+            pool.release(this);
+        }
+    }
 }
 
-// --- 2. THE GOLD STANDARD (Enum) ---
+// Borrow path: a Semaphore permit bounds the pool (a single CAS when one is free, a timed
+// wait when not), then an idle connection is popped from a lock-free deque or a new one is
+// opened. Idle connections are reused LIFO so the warmest one goes out first and the rest
+// can age out. A housekeeper thread evicts idle and over-age connections (down to minIdle)
+// and reports leaks: connections borrowed for longer than the leak threshold.
+class ConnectionPool {
+    private final DatabaseDriver driver;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final long leakThresholdNanos;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator peakInUse = new LongAccumulator(Math::max, 0);
+    private final LongAdder heldNanos = new LongAdder(); // Sum of borrow durations, for utilization
+    private final long createdAt = System.nanoTime();
+
+    private ConnectionPool(Builder builder) {
+        this.driver = builder.driver;
+        this.maxSize = builder.maxSize;
+        this.minIdle = Math.min(builder.minIdle, builder.maxSize);
+        this.idleTimeoutNanos = builder.idleTimeout.toNanos();
+        this.maxLifetimeNanos = builder.maxLifetime.toNanos();
+        this.leakThresholdNanos = builder.leakThreshold.toNanos();
+        this.permits = new Semaphore(maxSize);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = builder.housekeepingInterval.toNanos();
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    PooledConnection borrow(Duration timeout) throws TimeoutException, InterruptedException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            timeouts.increment();
+            throw new TimeoutException("No connection available within " + timeout.toMillis() + " ms ("
+                    + inUse.size() + "/" + maxSize + " in use)");
+        }
+        try {
+            PooledConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (isUsable(connection)) break;
+                retire(connection); // Too old or broken: drop it and try the next one
+            }
+            if (connection == null) {
+                connection = open();
+            }
+            long waited = System.nanoTime() - start;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+            borrows.increment();
+            connection.markBorrowed();
+            connection.borrowedAt = System.nanoTime();
+            connection.leakReported = false;
+            if (leakThresholdNanos > 0) {
+                connection.borrowSite = new Throwable("Connection borrowed here");
+            }
+            inUse.add(connection);
+            peakInUse.accumulate(inUse.size());
+            return connection;
+        } catch (RuntimeException e) {
+            permits.release(); // Opening failed: give the slot back
+            throw e;
+        }
+    }
+
+    void release(PooledConnection connection) {
+        inUse.remove(connection);
+        connection.lastUsedAt = System.nanoTime();
+        heldNanos.add(connection.lastUsedAt - connection.borrowedAt);
+        if (isUsable(connection)) {
+            idle.offerFirst(connection);
+        } else {
+            retire(connection);
+        }
+        permits.release();
+    }
+
+    private PooledConnection open() {
+        PooledConnection connection = new PooledConnection(driver.connect(), this);
+        total.incrementAndGet();
+        created.increment();
+        return connection;
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        return connection.physical.isValid() && System.nanoTime() - connection.createdAt < maxLifetimeNanos;
+    }
+
+    private void retire(PooledConnection connection) {
+        connection.physical.close();
+        total.decrementAndGet();
+        retired.increment();
+    }
+
+    private void housekeep() {
+        long now = System.nanoTime();
+        // Oldest-idle connections sit at the tail (LIFO reuse), so walk tail-first: once idle
+        // drops to minIdle, the connections kept are the freshest ones.
+        for (Iterator<PooledConnection> stalestFirst = idle.descendingIterator(); stalestFirst.hasNext(); ) {
+            PooledConnection connection = stalestFirst.next();
+            boolean expired = now - connection.lastUsedAt > idleTimeoutNanos && idle.size() > minIdle;
+            if ((expired || !isUsable(connection)) && idle.removeFirstOccurrence(connection)) {
+                retire(connection); // removeFirstOccurrence is the ownership check vs. a racing borrow
+            }
+        }
+        if (leakThresholdNanos > 0) {
+            for (PooledConnection connection : inUse) {
+                if (!connection.leakReported && now - connection.borrowedAt > leakThresholdNanos) {
+                    connection.leakReported = true;
+                    leaks.increment();
+                    StackTraceElement[] site = connection.borrowSite.getStackTrace();
+                    System.out.println("[POOL] Possible leak: connection held for "
+                            + (now - connection.borrowedAt) / 1_000_000 + " ms, borrowed at "
+                            + (site.length > 1 ? site[1] : "unknown"));
+                }
+            }
+        }
+    }
+
+    String stats() {
+        long borrowCount = borrows.sum();
+        double capacityNanos = (double) (System.nanoTime() - createdAt) * maxSize;
+        return "borrows=" + borrowCount + " timeouts=" + timeouts.sum()
+                + " avgWait=" + (borrowCount == 0 ? 0 : waitNanos.sum() / borrowCount / 1_000) + "us"
+                + " maxWait=" + maxWaitNanos.get() / 1_000 + "us"
+                + " inUse=" + inUse.size() + " idle=" + idle.size() + " total=" + total.get() + "/" + maxSize
+                + " utilization=" + inUse.size() * 100 / maxSize + "%"
+                + " avgUtilization=" + String.format("%.0f%%", 100 * heldNanos.sum() / capacityNanos)
+                + " peak=" + peakInUse.get()
+                + " created=" + created.sum() + " retired=" + retired.sum() + " leaks=" + leaks.sum();
+    }
+
+    void shutdown() {
+        housekeeper.shutdownNow();
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            retire(connection);
+        }
+    }
+
+    static final class Builder {
+        private final DatabaseDriver driver;
+        private int maxSize = 10;
+        private int minIdle = 0; // Idle eviction never shrinks the idle set below this
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private Duration maxLifetime = Duration.ofMinutes(30);
+        private Duration leakThreshold = Duration.ZERO; // Off
+        private Duration housekeepingInterval = Duration.ofSeconds(30);
+
+        Builder(DatabaseDriver driver) { this.driver = driver; }
+
+        Builder maxSize(int maxSize) { this.maxSize = maxSize; return this; }
+
+        Builder minIdle(int minIdle) { this.minIdle = minIdle; return this; }
+
+        Builder idleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; return this; }
+
+        Builder maxLifetime(Duration maxLifetime) { this.maxLifetime = maxLifetime; return this; }
+
+        Builder leakThreshold(Duration leakThreshold) { this.leakThreshold = leakThreshold; return this; }
+
+        Builder housekeepingInterval(Duration interval) { this.housekeepingInterval = interval; return this; }
+
+        ConnectionPool build() { return new ConnectionPool(this); }
+    }
+}
+
+// --- 3. THE GOLD STANDARD (Enum) ---
 // Note: Best for Java. Thread-safe, reflection-safe, and serialization-safe by default.
+// Sync mode (the default) prints straight away. In async mode a call only copies its
+// arguments into a pre-allocated ring slot; a writer thread formats and writes them.
 enum Logger {
     INSTANCE;
 
+    private volatile AsyncLogWriter asyncWriter; // null = synchronous console logging
+
     public void log(String message) {
-        System.out.println("Log: " + message);
+        AsyncLogWriter writer = asyncWriter;
+        if (writer == null) {
+            System.out.println("Log: " + message);
+        } else {
+            writer.publish(message, 0, null, null, null, null);
+        }
+    }
+
+    // Parameterized: "{}" placeholders are filled in later, on the writer thread.
+    public void log(String pattern, Object arg) {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer == null) {
+            log(AsyncLogWriter.format(new StringBuilder(), pattern, 1, arg, null, null, null).toString());
+        } else {
+            writer.publish(pattern, 1, arg, null, null, null);
+        }
+    }
+
+    public void log(String pattern, Object arg0, Object arg1) {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer == null) {
+            log(AsyncLogWriter.format(new StringBuilder(), pattern, 2, arg0, arg1, null, null).toString());
+        } else {
+            writer.publish(pattern, 2, arg0, arg1, null, null);
+        }
+    }
+
+    public void log(String pattern, Object... args) {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer == null) {
+            log(AsyncLogWriter.format(new StringBuilder(), pattern, args.length, null, null, null, args).toString());
+        } else {
+            writer.publish(pattern, args.length, null, null, null, args);
+        }
+    }
+
+    public synchronized void startAsync(Path file, int capacity, OverflowPolicy policy) throws IOException {
+        if (asyncWriter != null) throw new IllegalStateException("Async logging already started");
+        asyncWriter = new AsyncLogWriter(file, capacity, policy);
+    }
+
+    // Drains everything already logged, closes the file and falls back to sync mode.
+    public synchronized String stopAsync() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer == null) return "not running";
+        asyncWriter = null;
+        writer.shutdown();
+        return writer.stats();
     }
 }
 
-// --- 3. TESTER / REVISION AREA ---
+// --- 4. ASYNC LOGGING (Lock-Free MPSC Ring Buffer) ---
+enum OverflowPolicy {
+    BLOCK,  // Wait for space: nothing lost, producers slow down to the disk's pace
+    DROP,   // Never wait: messages that don't fit are counted and discarded
+    SAMPLE  // Like DROP, but every Nth overflowing message waits, so a storm is still visible
+}
+
+// One ring slot, allocated once and reused forever. `sequence` is the handshake:
+// == position       -> free for the producer that claims `position`
+// == position + 1   -> filled, ready for the consumer
+final class LogEvent {
+    volatile long sequence;
+    long timestampMillis;
+    String threadName;
+    String pattern;
+    int argCount;
+    Object arg0;
+    Object arg1;
+    Object arg2;
+    Object[] moreArgs; // Varargs calls only
+}
+
+// Bounded multi-producer / single-consumer queue over a power-of-two array (Vyukov style).
+// Producers race on one CAS of `tail`; the winner fills its slot and publishes it by bumping
+// the slot's sequence. No locks, and no allocation per message.
+// Shutdown sets the sign bit of `tail`. From then on every claim fails and the message is
+// dropped, even for a BLOCK producer waiting on a full ring. The writer drains up to the
+// final tail, including slots that were claimed but are still being filled.
+class AsyncLogWriter {
+    private static final int SAMPLE_EVERY = 64;
+    private static final int MAX_BATCH = 4096;
+    private static final long CLOSED = Long.MIN_VALUE; // Sign bit of tail
+
+    private final LogEvent[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Consumer only
+    private final OverflowPolicy policy;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong overflows = new AtomicLong();
+
+    private final FileChannel channel;
+    private final Thread writerThread;
+    private volatile long written;
+    private volatile long lost; // Formatted but never made it to the file
+    private volatile long batches;
+
+    AsyncLogWriter(Path file, int capacity, OverflowPolicy policy) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new LogEvent[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new LogEvent();
+            ring[i].sequence = i;
+        }
+        this.policy = policy;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.writerThread = new Thread(this::writeLoop, "async-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // --- Producer side (any thread) ---
+    void publish(String pattern, int argCount, Object arg0, Object arg1, Object arg2, Object[] moreArgs) {
+        int spins = 0;
+        while (true) {
+            long position = tail.get();
+            if (position < 0) { // Shut down: nobody will ever free a slot again
+                dropped.increment();
+                return;
+            }
+            LogEvent slot = ring[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.timestampMillis = System.currentTimeMillis();
+                    slot.threadName = Thread.currentThread().getName();
+                    slot.pattern = pattern;
+                    slot.argCount = argCount;
+                    slot.arg0 = arg0;
+                    slot.arg1 = arg1;
+                    slot.arg2 = arg2;
+                    slot.moreArgs = moreArgs;
+                    slot.sequence = position + 1; // Publish (volatile write orders the fields above)
+                    return;
+                }
+            } else if (difference < 0) { // Full: the consumer hasn't freed this slot yet
+                if (policy == OverflowPolicy.DROP
+                        || (policy == OverflowPolicy.SAMPLE && spins == 0 && overflows.incrementAndGet() % SAMPLE_EVERY != 0)) {
+                    dropped.increment();
+                    return;
+                }
+                backOff(++spins);
+            }
+            // difference > 0: another producer claimed it first; reload tail and retry
+        }
+    }
+
+    private static void backOff(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    // --- Consumer side (writer thread only) ---
+    private void writeLoop() {
+        StringBuilder text = new StringBuilder(64 * 1024);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(256 * 1024);
+        // REPLACE: a lone surrogate in one argument becomes '?' instead of an encoder error
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int idleRounds = 0;
+        while (true) {
+            int drained = 0;
+            while (drained < MAX_BATCH) {
+                LogEvent slot = ring[(int) head & mask];
+                if (slot.sequence != head + 1) break; // Nothing published at head yet
+                int lineStart = text.length();
+                try {
+                    text.append(slot.timestampMillis).append(" [").append(slot.threadName).append("] ");
+                    format(text, slot.pattern, slot.argCount, slot.arg0, slot.arg1, slot.arg2, slot.moreArgs).append('\n');
+                } catch (RuntimeException e) { // A throwing toString() costs its own line, not the writer
+                    text.setLength(lineStart);
+                    text.append(slot.timestampMillis).append(" [").append(slot.threadName).append("] ")
+                            .append(slot.pattern).append(" [unformattable arguments: ").append(e.getClass().getName())
+                            .append("]\n");
+                }
+                slot.pattern = null; // Let arguments be collected
+                slot.arg0 = slot.arg1 = slot.arg2 = null;
+                slot.moreArgs = null;
+                slot.sequence = head + ring.length; // Hand the slot back to producers, one lap later
+                head++;
+                drained++;
+            }
+            if (drained > 0) {
+                int failed = writeBatch(text, bytes, encoder);
+                written += drained - failed;
+                lost += failed;
+                batches++;
+                idleRounds = 0;
+            } else if (tail.get() < 0 && head == (tail.get() & ~CLOSED)) {
+                break; // Stopped, and every claimed slot has been published and written
+            } else {
+                LockSupport.parkNanos(++idleRounds < 50 ? 1_000 : 100_000);
+            }
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[LOGGER] Failed to close log file: " + e.getMessage());
+        }
+    }
+
+    // One encode + as few write() calls as the buffer allows, per batch. Returns how many of the
+    // batch's lines did not reach the file (everything from the chunk that failed onwards).
+    private int writeBatch(StringBuilder text, ByteBuffer bytes, CharsetEncoder encoder) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        int safe = 0; // Everything before this char has been written
+        int failed = 0;
+        try {
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (!result.isOverflow()) {
+                    encoder.flush(bytes);
+                }
+                bytes.flip();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                bytes.clear();
+                if (result.isError()) { // Can't happen with REPLACE, but never drop lines silently
+                    failed = countLines(text, safe);
+                    System.err.println("[LOGGER] Encoding failed (" + result + "), " + failed + " lines lost");
+                    break;
+                }
+                safe = chars.position();
+                if (!result.isOverflow()) break;
+            }
+        } catch (IOException e) {
+            failed = countLines(text, safe);
+            System.err.println("[LOGGER] Write failed, " + failed + " lines lost: " + e.getMessage());
+        }
+        encoder.reset();
+        text.setLength(0);
+        return failed;
+    }
+
+    private static int countLines(CharSequence text, int from) {
+        int lines = 0;
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    // SLF4J-style "{}" substitution. Runs on the writer thread in async mode.
+    static StringBuilder format(StringBuilder out, String pattern, int argCount,
+                                Object arg0, Object arg1, Object arg2, Object[] moreArgs) {
+        int argIndex = 0;
+        int from = 0;
+        int at;
+        while (argIndex < argCount && (at = pattern.indexOf("{}", from)) >= 0) {
+            out.append(pattern, from, at);
+            Object arg = moreArgs != null ? moreArgs[argIndex]
+                    : argIndex == 0 ? arg0 : argIndex == 1 ? arg1 : arg2;
+            out.append(arg);
+            argIndex++;
+            from = at + 2;
+        }
+        return out.append(pattern, from, pattern.length());
+    }
+
+    void shutdown() {
+        long position;
+        do {
+            position = tail.get();
+        } while (position >= 0 && !tail.compareAndSet(position, position | CLOSED));
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    String stats() {
+        return "written=" + written + " dropped=" + dropped.sum() + " lost=" + lost + " batches=" + batches
+                + " avgBatch=" + (batches == 0 ? 0 : written / batches) + " ringSize=" + ring.length + " policy=" + policy;
+    }
+}
+
+// --- 5. LAZY INITIALIZATION (Holder Idiom + Lazy<T> Registry) ---
+// THE HOLDER IDIOM: the JVM already guarantees a class is initialized exactly once, lazily,
+// and safely published to every thread. Nesting the instance in a holder class gets all
+// that for free: no volatile read, no lock, the JIT sees a plain static final constant.
+class AppConfig {
+    private final Map<String, String> settings = new HashMap<>();
+
+    private AppConfig() {
+        // Simulating a heavy load (parsing files, resolving secrets)
+        for (int i = 0; i < 50_000; i++) {
+            settings.put("feature." + i, Integer.toString(i * 31));
+        }
+    }
+
+    private static final class Holder {
+        static final AppConfig INSTANCE = new AppConfig(); // Runs on first Holder access only
+    }
+
+    public static AppConfig getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public String get(String key) {
+        return settings.get(key);
+    }
+}
+
+// A lazily-built value for resources that are not singletons by class (several pools, caches,
+// model handles...). Double-checked locking once; after that the value sits in a final field
+// of an immutable box, so the hot path is one volatile read and no lock.
+final class Lazy<T> {
+    private final Supplier<? extends T> factory;
+    private volatile Box<T> box;
+
+    private Lazy(Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    static <T> Lazy<T> of(Supplier<? extends T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    T get() {
+        Box<T> current = box;
+        if (current == null) {
+            synchronized (this) {
+                current = box;
+                if (current == null) {
+                    current = new Box<>(factory.get());
+                    box = current;
+                }
+            }
+        }
+        return current.value;
+    }
+
+    boolean isInitialized() {
+        return box != null;
+    }
+
+    // Moves the construction cost off the caller's path (e.g. off application startup).
+    CompletableFuture<T> prewarm(Executor executor) {
+        return CompletableFuture.supplyAsync(this::get, executor);
+    }
+
+    private static final class Box<T> {
+        final T value;
+
+        Box(T value) {
+            this.value = value;
+        }
+    }
+}
+
+// Registry of heavy components by type, itself an enum singleton. Register suppliers at
+// startup (cheap), prewarm the ones you want ready in the background, and let everything
+// else build on first use. Hot paths should keep the Lazy from lazy() rather than look it
+// up every time.
+enum LazyRegistry {
+    INSTANCE;
+
+    private final Map<Class<?>, Lazy<?>> components = new ConcurrentHashMap<>();
+
+    public <T> Lazy<T> register(Class<T> type, Supplier<? extends T> factory) {
+        Lazy<T> lazy = Lazy.of(factory);
+        if (components.putIfAbsent(type, lazy) != null) {
+            throw new IllegalStateException(type.getSimpleName() + " is already registered");
+        }
+        return lazy;
+    }
+
+    @SuppressWarnings("unchecked") // register() only ever pairs Class<T> with Lazy<T>
+    public <T> Lazy<T> lazy(Class<T> type) {
+        Lazy<T> lazy = (Lazy<T>) components.get(type);
+        if (lazy == null) throw new IllegalStateException(type.getSimpleName() + " is not registered");
+        return lazy;
+    }
+
+    public <T> T get(Class<T> type) {
+        return lazy(type).get();
+    }
+
+    public CompletableFuture<Void> prewarmAll(Executor executor) {
+        List<CompletableFuture<?>> warming = new ArrayList<>();
+        for (Lazy<?> lazy : components.values()) {
+            warming.add(lazy.prewarm(executor));
+        }
+        return CompletableFuture.allOf(warming.toArray(new CompletableFuture<?>[0]));
+    }
+}
+
+// --- 6. TESTER / REVISION AREA ---
 public class Singleton {
     public static void main(String[] args) {
         // Accessing the Singleton
@@ -52,5 +776,330 @@ public class Singleton {
 
         // Accessing the Enum Singleton
         Logger.INSTANCE.log("Testing Singleton");
+
+        demoConnectionPool();
+        demoAsyncLogger();
+        demoLazyInitialization();
+    }
+
+    // Heavy component for the registry demo: a model/index that takes a while to build.
+    static final class SearchIndex {
+        final int[] postings = new int[2_000_000];
+
+        SearchIndex() {
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = i * 31;
+            }
+            sleep(50); // Plus some I/O
+        }
+    }
+
+    private static void demoLazyInitialization() {
+        System.out.println("\n--- Startup Cost: first access vs prewarmed ---");
+        long start = System.nanoTime();
+        AppConfig.getInstance();
+        System.out.println("Holder idiom first access (builds AppConfig): " + (System.nanoTime() - start) / 1_000 + " us");
+        start = System.nanoTime();
+        AppConfig.getInstance();
+        System.out.println("Holder idiom second access:                   " + (System.nanoTime() - start) + " ns");
+
+        Lazy<SearchIndex> cold = LazyRegistry.INSTANCE.register(SearchIndex.class, SearchIndex::new);
+        Lazy<StringBuilder> warmed = LazyRegistry.INSTANCE.register(StringBuilder.class, () -> {
+            sleep(50);
+            return new StringBuilder("prewarmed");
+        });
+        // At "startup": kick off background construction and carry on
+        CompletableFuture<Void> warming = warmed.prewarm(ForkJoinPool.commonPool()).thenApply(value -> null);
+        start = System.nanoTime();
+        LazyRegistry.INSTANCE.get(SearchIndex.class);
+        System.out.println("Registry, cold first get:     " + (System.nanoTime() - start) / 1_000 + " us (built on the caller)");
+        warming.join();
+        start = System.nanoTime();
+        LazyRegistry.INSTANCE.get(StringBuilder.class);
+        System.out.println("Registry, prewarmed first get: " + (System.nanoTime() - start) / 1_000 + " us (built in the background)");
+        System.out.println("Both initialized: " + (cold.isInitialized() && warmed.isInitialized()));
+
+        // No JMH here, so a small harness: warm-up rounds, then best-of-5 timed rounds of 20M
+        // accesses, folding results into a sink so the JIT can't discard the reads.
+        System.out.println("\n--- Access Latency: DCL vs Holder vs Enum vs Registry ---");
+        Lazy<AppConfig> lazyConfig = Lazy.of(AppConfig::getInstance);
+        benchmarkAccess("DCL (DatabaseConnection)    ", DatabaseConnection::getInstance);
+        benchmarkAccess("Holder (AppConfig)          ", AppConfig::getInstance);
+        benchmarkAccess("Enum (Logger.INSTANCE)      ", () -> Logger.INSTANCE);
+        benchmarkAccess("Lazy<T> held by the caller  ", lazyConfig::get);
+        benchmarkAccess("LazyRegistry.get(type)      ", () -> LazyRegistry.INSTANCE.get(SearchIndex.class));
+    }
+
+    private static void benchmarkAccess(String label, Supplier<?> access) {
+        int iterations = 20_000_000;
+        for (int round = 0; round < 3; round++) {
+            accessLoop(access, iterations); // Warm-up: let the JIT compile and inline
+        }
+        double single = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            accessLoop(access, iterations);
+            single = Math.min(single, (double) (System.nanoTime() - start) / iterations);
+        }
+        // Contention: 4 threads hammering the same accessor at once
+        int threads = 4;
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                accessLoop(access, iterations / threads);
+                done.countDown();
+            }).start();
+        }
+        await(done);
+        double contended = (double) (System.nanoTime() - start) / iterations;
+        System.out.println(label + String.format(" %.2f ns/op (1 thread), %.2f ns/op (4 threads, aggregate)", single, contended));
+    }
+
+    private static volatile int sink;
+
+    private static void accessLoop(Supplier<?> access, int iterations) {
+        int fold = 0;
+        for (int i = 0; i < iterations; i++) {
+            fold += System.identityHashCode(access.get()) & 1;
+        }
+        sink += fold;
+    }
+
+    private static void demoAsyncLogger() {
+        System.out.println("\n--- Async Logger: producer cost per call ---");
+        Logger.INSTANCE.log("Order {} shipped to {}", 1042, "warehouse-7"); // Sync mode: formatted right away
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("logs");
+
+            // Baseline: a blocking file logger that formats and writes on the caller's thread
+            int syncCalls = 100_000;
+            try (SyncFileLogger sync = new SyncFileLogger(directory.resolve("sync.log"))) {
+                long start = System.nanoTime();
+                for (int i = 0; i < syncCalls; i++) {
+                    sync.log("Order " + i + " shipped to warehouse-7");
+                }
+                System.out.println("Blocking file logger: " + (System.nanoTime() - start) / syncCalls + " ns/call");
+            }
+
+            // Bursts that fit in the ring: the caller's true cost. Then a sustained flood, where
+            // BLOCK makes producers run at the writer's (disk's) pace.
+            Path asyncFile = directory.resolve("async.log");
+            Logger.INSTANCE.startAsync(asyncFile, 1 << 16, OverflowPolicy.BLOCK);
+            long burstNanos = Long.MAX_VALUE;
+            for (int burst = 0; burst < 20; burst++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < 10_000; i++) {
+                    Logger.INSTANCE.log("Order {} shipped to {}", i, "warehouse-7");
+                }
+                burstNanos = Math.min(burstNanos, (System.nanoTime() - start) / 10_000);
+                sleep(20); // Let the writer empty the ring between bursts
+            }
+            int asyncCalls = 1_000_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < asyncCalls; i++) {
+                Logger.INSTANCE.log("Order {} shipped to {}", i, "warehouse-7");
+            }
+            long producerNanos = System.nanoTime() - start;
+            Logger.INSTANCE.log("Order {} note: {}", 7, "half an emoji \uD800 from a truncated string"); // Lone surrogate
+            Logger.INSTANCE.log("Order {} has a broken payload", new ExplodingPayload()); // Must not kill the writer
+            Logger.INSTANCE.log("Order {} shipped after the broken one", asyncCalls);
+            String stats = Logger.INSTANCE.stopAsync();
+            System.out.println("Async logger (BLOCK):  " + burstNanos + " ns/call in bursts, " + producerNanos / asyncCalls
+                    + " ns/call sustained, " + countLines(asyncFile) + " lines on disk [" + stats + "]");
+            System.out.println("Broken payload written as a placeholder, writer kept going: "
+                    + lastLines(asyncFile, 2).replace('\n', ' '));
+            System.out.println("Lone surrogate replaced, not fatal to the batch: " + lastLines(asyncFile, 3).split("\n")[0]);
+
+            // Four producers flooding a small ring: what each overflow policy gives up
+            for (OverflowPolicy policy : new OverflowPolicy[] {OverflowPolicy.DROP, OverflowPolicy.SAMPLE}) {
+                Path file = directory.resolve(policy + ".log");
+                Logger.INSTANCE.startAsync(file, 1_024, policy);
+                CountDownLatch done = new CountDownLatch(4);
+                start = System.nanoTime();
+                for (int t = 0; t < 4; t++) {
+                    new Thread(() -> {
+                        for (int i = 0; i < 250_000; i++) {
+                            Logger.INSTANCE.log("Sensor {} reading {} at {}", 7, i, "dock-3");
+                        }
+                        done.countDown();
+                    }, "producer-" + t).start();
+                }
+                await(done);
+                producerNanos = System.nanoTime() - start;
+                stats = Logger.INSTANCE.stopAsync();
+                System.out.println("Async logger (" + policy + "): " + producerNanos / 1_000_000 + " ns/call (4 threads), "
+                        + countLines(file) + " lines on disk [" + stats + "]");
+            }
+
+            // Shutdown while BLOCK producers are stuck on a full ring: they must drop and return,
+            // and everything they did get in must reach the file.
+            Path stopped = directory.resolve("stopped.log");
+            AsyncLogWriter writer = new AsyncLogWriter(stopped, 1_024, OverflowPolicy.BLOCK);
+            CountDownLatch done = new CountDownLatch(4);
+            for (int t = 0; t < 4; t++) {
+                new Thread(() -> {
+                    for (int i = 0; i < 250_000; i++) {
+                        writer.publish("Sensor {} reading {}", 2, 7, i, null, null);
+                    }
+                    done.countDown();
+                }, "producer-" + t).start();
+            }
+            sleep(20);
+            writer.shutdown();
+            boolean returned = done.await(5, TimeUnit.SECONDS);
+            System.out.println("Stopped mid-flood (BLOCK): producers returned: " + returned + ", "
+                    + countLines(stopped) + " lines on disk [" + writer.stats() + "]");
+        } catch (IOException e) {
+            System.out.println("[ERROR] Logger demo failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deleteQuietly(directory);
+        }
+    }
+
+    private static long countLines(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+
+    // Without the timestamp and thread name, which change every run.
+    private static String lastLines(Path file, int count) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        StringBuilder out = new StringBuilder();
+        for (String line : lines.subList(Math.max(0, lines.size() - count), lines.size())) {
+            out.append(line.substring(line.indexOf("] ") + 2)).append('\n');
+        }
+        return out.toString().trim();
+    }
+
+    private static void deleteQuietly(Path directory) {
+        if (directory == null) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ignored) {
+            // Temp directory; the OS will clean it up
+        }
+    }
+
+    private static void demoConnectionPool() {
+        System.out.println("\n--- Pooled Connections via the Singleton ---");
+        try (PooledConnection connection = DatabaseConnection.getInstance().getConnection()) {
+            System.out.println(connection.execute("SELECT 1"));
+        } catch (TimeoutException | InterruptedException e) {
+            System.out.println("[ERROR] " + e.getMessage());
+        }
+        System.out.println("[POOL] " + DatabaseConnection.getInstance().poolStats());
+
+        // The old design was effectively a pool of one: every query queued behind the same handle
+        System.out.println("\n--- 32 threads x 100 queries (1 ms each): pool of 1 vs pool of 8 ---");
+        for (int size : new int[] {1, 8}) {
+            ConnectionPool pool = new ConnectionPool.Builder(new InMemoryDriver(5, 1_000)).maxSize(size).build();
+            CountDownLatch done = new CountDownLatch(32);
+            long start = System.nanoTime();
+            for (int t = 0; t < 32; t++) {
+                new Thread(() -> {
+                    for (int q = 0; q < 100; q++) {
+                        try (PooledConnection connection = pool.borrow(Duration.ofSeconds(30))) {
+                            connection.execute("UPDATE views SET n = n + 1");
+                        } catch (TimeoutException | InterruptedException e) {
+                            System.out.println("[ERROR] " + e.getMessage());
+                        }
+                    }
+                    done.countDown();
+                }).start();
+            }
+            await(done);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Pool of " + size + ": " + millis + " ms, " + 3_200_000 / Math.max(1, millis) + " queries/s");
+            System.out.println("[POOL] " + pool.stats());
+            pool.shutdown();
+        }
+
+        System.out.println("\n--- Borrow Timeout, Leak Detection, Idle Eviction ---");
+        ConnectionPool pool = new ConnectionPool.Builder(new InMemoryDriver(1, 100))
+                .maxSize(4).minIdle(1)
+                .idleTimeout(Duration.ofMillis(100))
+                .maxLifetime(Duration.ofMinutes(5))
+                .leakThreshold(Duration.ofMillis(100))
+                .housekeepingInterval(Duration.ofMillis(50))
+                .build();
+        try {
+            PooledConnection[] burst = new PooledConnection[4];
+            for (int i = 0; i < burst.length; i++) {
+                burst[i] = pool.borrow(Duration.ofMillis(100));
+            }
+            try {
+                pool.borrow(Duration.ofMillis(50));
+            } catch (TimeoutException e) {
+                System.out.println("Fifth borrow: " + e.getMessage());
+            }
+            for (int i = 1; i < burst.length; i++) {
+                burst[i].close();
+            }
+            sleep(250); // burst[0] is never returned: the housekeeper flags it, and evicts idle ones
+            System.out.println("[POOL] " + pool.stats());
+            burst[0].close();
+        } catch (TimeoutException | InterruptedException e) {
+            System.out.println("[ERROR] " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// Test double: the blocking alternative - every call encodes and writes on the caller's thread.
+class SyncFileLogger implements AutoCloseable {
+    private final FileChannel channel;
+
+    SyncFileLogger(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    synchronized void log(String message) {
+        try {
+            ByteBuffer line = StandardCharsets.UTF_8.encode(System.currentTimeMillis() + " ["
+                    + Thread.currentThread().getName() + "] " + message + "\n");
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
     }
-}
\ No newline at end of file
+}
+
+// Test double: an argument whose toString() throws, as a half-initialised domain object might.
+class ExplodingPayload {
+    @Override
+    public String toString() {
+        throw new IllegalStateException("payload not loaded");
+    }
+}
@@ -13,32 +13,63 @@
  * 1. Component Interface: The base contract for both leaves and composites.
  * 2. Leaf: The fundamental building block (has no children).
  * 3. Composite: The container (holds a list of Components).
+ * 4. Parent references (optional in GoF) let a change travel UP the tree, so
+ * containers can keep cached totals instead of re-asking every child.
+ * 5. Concurrency: per-directory locks for writers, an exclusive root gate for
+ * whole-tree readers, so moves are never observed half-applied.
  */
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
 
 // --- 1. THE COMPONENT (Uniform Interface) ---
 interface FileSystemComponent {
-    int getSize();
+    long getSize();
     void showDetails();
+
+    // Set by the Directory that adopts this component; null for a root.
+    Directory getParent();
+    void setParent(Directory parent);
 }
 
 // --- 2. THE LEAF (Individual Object) ---
 class File implements FileSystemComponent {
     private String name;
-    private int size;
+    private long size;
+    private volatile Directory parent;
 
-    public File(String name, int size) {
+    public File(String name, long size) {
         this.name = name;
         this.size = size;
     }
 
     @Override
-    public int getSize() {
+    public long getSize() {
         return size;
     }
 
+    @Override
+    public Directory getParent() { return parent; }
+
+    @Override
+    public void setParent(Directory parent) { this.parent = parent; }
+
+    public String getName() { return name; }
+
     @Override
     public void showDetails() {
         System.out.println("  File: " + name + " (" + size + " KB)");
@@ -46,43 +77,460 @@ class File implements FileSystemComponent {
 }
 
 // --- 3. THE COMPOSITE (Container Object) ---
+// Thread-safety: writers lock only the directory they touch (its monitor guards `children`)
+// and push size deltas up through atomic counters, so ingest into different folders runs
+// in parallel. Readers that need the whole tree at one instant (cold getSize, showDetails,
+// snapshot) take the root's gate exclusively, which waits out in-flight mutations - the gate
+// is inverted on purpose: many mutators share it, the occasional full-tree reader excludes.
+// Build or attach a subtree before sharing it between threads; the gate lives on the root.
 class Directory implements FileSystemComponent {
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
+    private final long id = ID_SEQUENCE.incrementAndGet(); // Global lock order for moves
     private String name;
     // The Magic: It holds a list of the INTERFACE, not specific files
-    private List<FileSystemComponent> children = new ArrayList<>();
+    private List<FileSystemComponent> children = new ArrayList<>(); // Guarded by this
+    private volatile Directory parent;
+    private final ReentrantReadWriteLock treeGate = new ReentrantReadWriteLock(); // Used while this is the root
+
+    // Cached total. Invariant: a directory is only "known" if everything below it is known,
+    // so a cold directory always has cold ancestors and delta propagation can stop there.
+    // sizeKnown only flips while the gate is held exclusively, so mutators see it stable.
+    private final AtomicLong cachedSize = new AtomicLong();
+    private volatile boolean sizeKnown = true; // An empty directory's size (0) is trivially known
 
     public Directory(String name) {
         this.name = name;
     }
 
     public void addComponent(FileSystemComponent component) {
-        children.add(component);
+        long delta = component.getSize(); // Before taking the gate: a cold child may need it exclusively
+        Lock gate = root().treeGate.readLock();
+        gate.lock();
+        try {
+            synchronized (this) {
+                component.setParent(this); // First: a component that refuses a parent (a view) changes nothing
+                children.add(component);
+            }
+            if (sizeKnown) {
+                propagate(this, null, delta);
+            }
+        } finally {
+            gate.unlock();
+        }
     }
 
     public void removeComponent(FileSystemComponent component) {
-        children.remove(component);
+        Lock gate = root().treeGate.readLock();
+        gate.lock();
+        try {
+            synchronized (this) {
+                if (!children.remove(component)) return;
+                component.setParent(null);
+            }
+            if (sizeKnown) {
+                propagate(this, null, -component.getSize());
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    // Re-parents a child of this directory under target as one step. Common ancestors of the
+    // two directories never see the size leave and come back, so their totals stay exact.
+    // Each side is updated on its own: the source may be cold while the target is warm.
+    public void moveComponent(FileSystemComponent component, Directory target) {
+        if (component instanceof Directory) {
+            for (Directory dir = target; dir != null; dir = dir.parent) {
+                if (dir == component) {
+                    throw new IllegalArgumentException("Cannot move a directory into its own subtree");
+                }
+            }
+        }
+        while (true) {
+            Lock gate = root().treeGate.readLock();
+            gate.lock();
+            try {
+                // A cold subtree can't land under a warm target (it would break the invariant), and
+                // warming it needs the gate exclusively: let go, compute it, and try again.
+                boolean coldComponent = component instanceof Directory && !((Directory) component).sizeKnown;
+                if (!(coldComponent && target.sizeKnown)) {
+                    Directory first = id < target.id ? this : target;
+                    Directory second = first == this ? target : this;
+                    synchronized (first) {
+                        synchronized (second) {
+                            if (!children.remove(component)) return;
+                            target.children.add(component);
+                            component.setParent(target);
+                        }
+                    }
+                    // propagate() stops at the first cold directory, so no sizeKnown guard is needed
+                    long size = coldComponent ? 0 : component.getSize();
+                    Directory commonAncestor = commonAncestor(this, target);
+                    propagate(this, commonAncestor, -size);
+                    propagate(target, commonAncestor, size);
+                    return;
+                }
+            } finally {
+                gate.unlock();
+            }
+            component.getSize();
+        }
+    }
+
+    // O(depth): push the change into every ancestor (below `stop`) that has a cached total.
+    private static void propagate(Directory from, Directory stop, long delta) {
+        for (Directory dir = from; dir != stop && dir != null && dir.sizeKnown; dir = dir.parent) {
+            dir.cachedSize.addAndGet(delta);
+        }
+    }
+
+    private static Directory commonAncestor(Directory a, Directory b) {
+        Set<Directory> ancestorsOfA = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Directory dir = a; dir != null; dir = dir.parent) {
+            ancestorsOfA.add(dir);
+        }
+        for (Directory dir = b; dir != null; dir = dir.parent) {
+            if (ancestorsOfA.contains(dir)) return dir;
+        }
+        return null;
+    }
+
+    private Directory root() {
+        Directory dir = this;
+        while (dir.parent != null) {
+            dir = dir.parent;
+        }
+        return dir;
+    }
+
+    // Drops the cache for this whole subtree and everything above it (e.g. after files changed
+    // on disk behind our back); the next getSize recomputes. Iterative so deep trees are safe.
+    public void invalidateSize() {
+        Lock gate = root().treeGate.writeLock();
+        gate.lock();
+        try {
+            for (Directory dir = parent; dir != null && dir.sizeKnown; dir = dir.parent) {
+                dir.sizeKnown = false;
+            }
+            List<Directory> pending = new ArrayList<>();
+            pending.add(this);
+            while (!pending.isEmpty()) {
+                Directory dir = pending.remove(pending.size() - 1);
+                dir.sizeKnown = false;
+                for (FileSystemComponent component : dir.children) {
+                    if (component instanceof Directory) {
+                        pending.add((Directory) component);
+                    }
+                }
+            }
+        } finally {
+            gate.unlock();
+        }
     }
 
     @Override
-    public int getSize() {
-        int totalSize = 0;
-        // Recursive delegation
-        for (FileSystemComponent component : children) {
-            totalSize += component.getSize(); 
+    public long getSize() {
+        if (!sizeKnown) {
+            Lock gate = root().treeGate.writeLock();
+            gate.lock();
+            try {
+                if (!sizeKnown) {
+                    // Cold computation: fan the subtree out over the fork/join pool
+                    ForkJoinPool.commonPool().invoke(new SizeTask(this));
+                }
+            } finally {
+                gate.unlock();
+            }
+        }
+        return cachedSize.get();
+    }
+
+    // A point-in-time copy of this subtree that can be read at leisure while writers carry on.
+    public CompactFileTree snapshot() {
+        Lock gate = root().treeGate.writeLock();
+        gate.lock();
+        try {
+            return CompactFileTree.from(this);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    @Override
+    public Directory getParent() { return parent; }
+
+    @Override
+    public void setParent(Directory parent) { this.parent = parent; }
+
+    public synchronized List<FileSystemComponent> getChildren() { return new ArrayList<>(children); }
+
+    public String getName() { return name; }
+
+    // Recursive delegation, in parallel: cold subdirectories are forked while the worker's
+    // queue is short and walked inline otherwise; warm ones contribute their cached total.
+    // Runs under the exclusive gate, so the child lists cannot change underneath it.
+    @SuppressWarnings("serial") // Serializable only via ForkJoinTask; tasks never leave the pool
+    private static final class SizeTask extends RecursiveTask<Long> {
+        private static final int MAX_SURPLUS_TASKS = 3;
+        private final Directory directory;
+
+        SizeTask(Directory directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected Long compute() {
+            long total = 0;
+            List<SizeTask> forked = new ArrayList<>();
+            for (FileSystemComponent component : directory.children) {
+                Directory child = component instanceof Directory ? (Directory) component : null;
+                if (child != null && !child.sizeKnown) {
+                    SizeTask task = new SizeTask(child);
+                    if (getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+                        task.fork();
+                        forked.add(task);
+                    } else {
+                        total += task.compute();
+                    }
+                } else {
+                    total += component.getSize();
+                }
+            }
+            for (SizeTask task : forked) {
+                total += task.join();
+            }
+            directory.cachedSize.set(total);
+            directory.sizeKnown = true;
+            return total;
         }
-        return totalSize;
     }
 
     @Override
     public void showDetails() {
-        System.out.println("Directory: " + name);
-        for (FileSystemComponent component : children) {
-            component.showDetails();
+        Lock gate = root().treeGate.writeLock(); // Reentrant, so nested directories re-enter it
+        gate.lock();
+        try {
+            System.out.println("Directory: " + name);
+            for (FileSystemComponent component : children) {
+                component.showDetails();
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+}
+
+// --- 4. COMPACT TREE STORE (Struct-of-Arrays) ---
+// One object per node plus an ArrayList per directory is fine for thousands of entries,
+// but at tens of millions it is mostly headers and pointers. Here a node is just an index:
+// every field lives in its own primitive array, and names share one byte pool.
+class CompactFileTree {
+    public static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private int count;
+    private int[] parent;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] lastChild;      // Only so appends keep insertion order in O(1)
+    private long[] size;          // File size; unused (0) for directories
+    private boolean[] directory;
+    private int[] nameOffset;     // Name of node i is nameBytes[nameOffset[i] .. nameOffset[i + 1])
+    private byte[] nameBytes = new byte[1 << 16];
+
+    private long[] subtreeTotals; // Lazily computed, dropped on every append
+
+    public CompactFileTree(String rootName, int expectedNodes) {
+        int capacity = Math.max(expectedNodes, 16);
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        lastChild = new int[capacity];
+        size = new long[capacity];
+        directory = new boolean[capacity];
+        nameOffset = new int[capacity + 1];
+        append(NONE, rootName, 0, true);
+    }
+
+    public int addDirectory(int parentNode, String name) {
+        return append(parentNode, name, 0, true);
+    }
+
+    public int addFile(int parentNode, String name, long fileSize) {
+        return append(parentNode, name, fileSize, false);
+    }
+
+    private int append(int parentNode, String name, long fileSize, boolean isDirectory) {
+        if (parentNode != NONE && !directory[parentNode]) {
+            throw new IllegalArgumentException("Node " + parentNode + " is a file, not a directory");
+        }
+        ensureCapacity(count + 1);
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        int offset = nameOffset[count];
+        if (offset + encoded.length > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, offset + encoded.length));
+        }
+        System.arraycopy(encoded, 0, nameBytes, offset, encoded.length);
+
+        int node = count++;
+        nameOffset[count] = offset + encoded.length;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+        nextSibling[node] = NONE;
+        size[node] = fileSize;
+        directory[node] = isDirectory;
+        if (parentNode != NONE) {
+            if (firstChild[parentNode] == NONE) {
+                firstChild[parentNode] = node;
+            } else {
+                nextSibling[lastChild[parentNode]] = node;
+            }
+            lastChild[parentNode] = node;
+        }
+        subtreeTotals = null;
+        return node;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= parent.length) return;
+        int capacity = Math.max(needed, parent.length * 2);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        lastChild = Arrays.copyOf(lastChild, capacity);
+        size = Arrays.copyOf(size, capacity);
+        directory = Arrays.copyOf(directory, capacity);
+        nameOffset = Arrays.copyOf(nameOffset, capacity + 1);
+    }
+
+    // Flattens an existing object tree (pre-order, so parents always get lower indices).
+    public static CompactFileTree from(Directory root) {
+        CompactFileTree tree = new CompactFileTree(root.getName(), 1 << 10);
+        List<Directory> pendingDirs = new ArrayList<>();
+        List<Integer> pendingIds = new ArrayList<>();
+        pendingDirs.add(root);
+        pendingIds.add(ROOT);
+        while (!pendingDirs.isEmpty()) {
+            Directory dir = pendingDirs.remove(pendingDirs.size() - 1);
+            int id = pendingIds.remove(pendingIds.size() - 1);
+            for (FileSystemComponent component : dir.getChildren()) {
+                if (component instanceof Directory) {
+                    Directory child = (Directory) component;
+                    pendingDirs.add(child);
+                    pendingIds.add(tree.addDirectory(id, child.getName()));
+                } else if (component instanceof File) {
+                    File file = (File) component;
+                    tree.addFile(id, file.getName(), file.getSize());
+                } else {
+                    throw new IllegalArgumentException("Cannot flatten " + component.getClass().getSimpleName()
+                            + " in " + dir.getName() + ": only File leaves and Directory nodes have a compact form");
+                }
+            }
+        }
+        return tree;
+    }
+
+    public int nodeCount() { return count; }
+
+    public boolean isDirectory(int node) { return directory[node]; }
+
+    public int parentOf(int node) { return parent[node]; }
+
+    public String nameOf(int node) {
+        return new String(nameBytes, nameOffset[node], nameOffset[node + 1] - nameOffset[node], StandardCharsets.UTF_8);
+    }
+
+    // Linear scan: no pointer chasing, just one sequential pass over a long[].
+    public long totalSize() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += size[i];
+        }
+        return total;
+    }
+
+    // Every directory's total in one backwards pass: since parent[i] < i, each node is
+    // complete before it is folded into its parent. No recursion, no stack.
+    public long[] computeSubtreeTotals() {
+        long[] totals = Arrays.copyOf(size, count);
+        for (int i = count - 1; i > ROOT; i--) {
+            totals[parent[i]] += totals[i];
+        }
+        return totals;
+    }
+
+    public long sizeOf(int node) {
+        if (subtreeTotals == null) {
+            subtreeTotals = computeSubtreeTotals();
+        }
+        return subtreeTotals[node];
+    }
+
+    // Views are created on demand and hold nothing but the index, so the client keeps
+    // the uniform Composite API without the store paying for an object per node.
+    public FileSystemComponent view(int node) {
+        return new CompactNodeView(this, node);
+    }
+
+    // Pre-order walk over first-child/next-sibling links, same output as the object tree.
+    void printSubtree(int node) {
+        if (!directory[node]) {
+            System.out.println("  File: " + nameOf(node) + " (" + size[node] + " KB)");
+            return;
+        }
+        int current = node;
+        while (true) {
+            if (directory[current]) {
+                System.out.println("Directory: " + nameOf(current));
+            } else {
+                System.out.println("  File: " + nameOf(current) + " (" + size[current] + " KB)");
+            }
+            if (firstChild[current] != NONE) {
+                current = firstChild[current];
+                continue;
+            }
+            while (current != node && nextSibling[current] == NONE) {
+                current = parent[current];
+            }
+            if (current == node) return;
+            current = nextSibling[current];
         }
     }
 }
 
-// --- 4. TESTER ---
+// Read-only window onto one node of a CompactFileTree.
+class CompactNodeView implements FileSystemComponent {
+    private final CompactFileTree tree;
+    private final int node;
+
+    CompactNodeView(CompactFileTree tree, int node) {
+        this.tree = tree;
+        this.node = node;
+    }
+
+    @Override
+    public long getSize() {
+        return tree.sizeOf(node);
+    }
+
+    @Override
+    public void showDetails() {
+        tree.printSubtree(node);
+    }
+
+    // The store links nodes by index, not by Directory objects, so there is no heap parent to hand out.
+    @Override
+    public Directory getParent() { return null; }
+
+    @Override
+    public void setParent(Directory parent) {
+        throw new UnsupportedOperationException("Compact tree views are read-only");
+    }
+}
+
+// --- 5. TESTER ---
 public class Composite {
     public static void main(String[] args) {
         // 1. Create Leaves (Files)
@@ -104,5 +552,232 @@ public class Composite {
         // 4. Uniform Treatment: The client doesn't care if rootDir is a file or folder
         rootDir.showDetails();
         System.out.println("Total Size of Root: " + rootDir.getSize() + " KB");
+
+        // 5. A UI polling sizes on a ~1M file tree: the first call is a cold parallel
+        // computation, later polls are O(1), and edits only touch the path to the root.
+        System.out.println("\n--- Cached Sizes on a Large Tree ---");
+        Directory bigRoot = new Directory("Volume");
+        Directory deepest = bigRoot;
+        for (int i = 0; i < 1_000; i++) {
+            Directory project = buildColdTree("project" + i, 1_000);
+            bigRoot.addComponent(project);
+            deepest = project;
+        }
+        bigRoot.invalidateSize(); // Pretend the tree was just loaded from disk with no sizes cached
+
+        long start = System.nanoTime();
+        long total = bigRoot.getSize();
+        System.out.println("Cold getSize: " + total + " KB in " + (System.nanoTime() - start) / 1_000 + " us");
+
+        start = System.nanoTime();
+        for (int poll = 0; poll < 1_000; poll++) {
+            total = bigRoot.getSize();
+        }
+        System.out.println("1,000 polls:  " + total + " KB in " + (System.nanoTime() - start) / 1_000 + " us");
+
+        FileSystemComponent hugeFile = new File("disk_image.iso", 3_000_000_000L); // Would overflow an int
+        start = System.nanoTime();
+        deepest.addComponent(hugeFile);
+        System.out.println("After add:    " + bigRoot.getSize() + " KB in " + (System.nanoTime() - start) / 1_000 + " us");
+        deepest.removeComponent(hugeFile);
+        System.out.println("After remove: " + bigRoot.getSize() + " KB");
+
+        // Regression: moving out of a cold directory into a warm one must still credit the target
+        Directory volume = new Directory("Volume");
+        Directory source = new Directory("S");
+        Directory target = new Directory("T");
+        FileSystemComponent movedFile = new File("big.bin", 100);
+        source.addComponent(movedFile);
+        target.addComponent(new File("small.bin", 1));
+        volume.addComponent(source);
+        volume.addComponent(target);
+        source.invalidateSize();
+        source.moveComponent(movedFile, target);
+        System.out.println("Cold-source move: T=" + target.getSize() + " KB, Volume=" + volume.getSize()
+                + " KB (expected 101 and 101)");
+
+        demoCompactStore();
+        demoConcurrentMutation();
+    }
+
+    // Many writers ingesting and shuffling files while a reader checks every view it gets.
+    private static void demoConcurrentMutation() {
+        System.out.println("\n--- Concurrent Ingest and Moves ---");
+        int folders = 64;
+        int filesPerFolder = 5_000;
+        for (int threads : new int[] {1, 4}) {
+            Directory root = new Directory("Ingest");
+            List<Directory> targets = new ArrayList<>();
+            for (int i = 0; i < folders; i++) {
+                Directory folder = new Directory("folder" + i);
+                root.addComponent(folder);
+                targets.add(folder);
+            }
+            long start = System.nanoTime();
+            runWorkers(threads, worker -> {
+                for (int i = worker; i < folders; i += threads) {
+                    Directory folder = targets.get(i);
+                    for (int f = 0; f < filesPerFolder; f++) {
+                        folder.addComponent(new File("f" + f, 4));
+                    }
+                }
+            });
+            System.out.println(threads + " writer thread(s): " + root.getSize() + " KB ingested in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms ("
+                    + Runtime.getRuntime().availableProcessors() + " cores available)");
+        }
+
+        // Movers only re-parent files, so every consistent view must show the same total
+        Directory root = new Directory("Shuffle");
+        List<Directory> folderList = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Directory parentFolder = new Directory("group" + i);
+            root.addComponent(parentFolder);
+            Directory folder = new Directory("leaf" + i);
+            parentFolder.addComponent(folder);
+            folderList.add(folder);
+            for (int f = 0; f < 1_000; f++) {
+                folder.addComponent(new File("f" + f, 1 + f % 7));
+            }
+        }
+        long expected = root.getSize();
+        AtomicBoolean moving = new AtomicBoolean(true);
+        AtomicLong moves = new AtomicLong();
+        Thread movers = new Thread(() -> runWorkers(4, worker -> {
+            Random random = new Random(worker);
+            while (moving.get()) {
+                Directory from = folderList.get(random.nextInt(folderList.size()));
+                Directory to = folderList.get(random.nextInt(folderList.size()));
+                List<FileSystemComponent> candidates = from.getChildren();
+                if (from != to && !candidates.isEmpty()) {
+                    from.moveComponent(candidates.get(random.nextInt(candidates.size())), to);
+                    moves.incrementAndGet();
+                }
+            }
+        }));
+        movers.start();
+        int reads = 0;
+        int inconsistent = 0;
+        long deadline = System.nanoTime() + 300_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (root.getSize() != expected) inconsistent++;
+            if (reads % 50 == 0 && root.snapshot().totalSize() != expected) inconsistent++;
+            reads++;
+        }
+        moving.set(false);
+        try {
+            movers.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(moves.get() + " moves, " + reads + " reads, " + inconsistent + " inconsistent views (expected total " + expected + " KB)");
+    }
+
+    private static void runWorkers(int threads, IntConsumer work) {
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            new Thread(() -> {
+                try {
+                    work.accept(worker);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Same 2M-file shape stored both ways: retained heap after GC, and a cold full-size scan.
+    private static void demoCompactStore() {
+        System.out.println("\n--- Object Tree vs Compact Tree Store (2,000 dirs x 1,000 files) ---");
+        int dirs = 2_000;
+        int filesPerDir = 1_000;
+
+        long baseline = usedHeap();
+        Directory objectRoot = new Directory("Volume");
+        for (int d = 0; d < dirs; d++) {
+            objectRoot.addComponent(buildColdTree("project" + d, filesPerDir));
+        }
+        long objectBytes = usedHeap() - baseline;
+        long objectScanMicros = Long.MAX_VALUE;
+        long objectTotal = 0;
+        for (int run = 0; run < 5; run++) { // Best of 5, so JIT warm-up doesn't decide the result
+            objectRoot.invalidateSize();
+            long start = System.nanoTime();
+            objectTotal = objectRoot.getSize();
+            objectScanMicros = Math.min(objectScanMicros, (System.nanoTime() - start) / 1_000);
+        }
+
+        CompactFileTree flattened = CompactFileTree.from(objectRoot);
+        objectRoot = null; // Let the object tree go before measuring the compact one
+
+        baseline = usedHeap();
+        CompactFileTree compact = new CompactFileTree("Volume", dirs * (filesPerDir + 1) + 1);
+        for (int d = 0; d < dirs; d++) {
+            int dir = compact.addDirectory(CompactFileTree.ROOT, "project" + d);
+            for (int f = 0; f < filesPerDir; f++) {
+                compact.addFile(dir, "f" + f, 4);
+            }
+        }
+        long compactBytes = usedHeap() - baseline;
+        long compactScanMicros = Long.MAX_VALUE;
+        long compactTotal = 0;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            compactTotal = compact.computeSubtreeTotals()[CompactFileTree.ROOT];
+            compactScanMicros = Math.min(compactScanMicros, (System.nanoTime() - start) / 1_000);
+        }
+
+        System.out.println("Object tree:  " + objectBytes / (1 << 20) + " MB, all directory sizes (cold) " + objectTotal + " KB in " + objectScanMicros + " us");
+        System.out.println("Compact tree: " + compactBytes / (1 << 20) + " MB, all directory sizes (cold) " + compactTotal + " KB in " + compactScanMicros + " us");
+        long linearMicros = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            compactTotal = compact.totalSize();
+            linearMicros = Math.min(linearMicros, (System.nanoTime() - start) / 1_000);
+        }
+        System.out.println("Compact tree: root total only (plain linear scan) " + compactTotal + " KB in " + linearMicros + " us");
+        System.out.println("Flattened copy has " + flattened.nodeCount() + " nodes, total " + flattened.totalSize() + " KB");
+
+        // Views keep the uniform API on top of the arrays
+        CompactFileTree small = new CompactFileTree("Root", 8);
+        int docs = small.addDirectory(CompactFileTree.ROOT, "Documents");
+        small.addFile(docs, "resume.pdf", 150);
+        small.addFile(docs, "photo.jpg", 2500);
+        small.addFile(CompactFileTree.ROOT, "script.sh", 5);
+        FileSystemComponent rootView = small.view(CompactFileTree.ROOT);
+        rootView.showDetails();
+        System.out.println("Total Size of Root: " + rootView.getSize() + " KB");
+
+        // A view can't join an object tree: it is rejected before the directory changes at all
+        Directory inbox = new Directory("Inbox");
+        inbox.addComponent(new File("memo.txt", 3));
+        try {
+            inbox.addComponent(rootView);
+        } catch (UnsupportedOperationException e) {
+            System.out.println("Adding a view to Inbox rejected (" + e.getMessage() + "); Inbox still has "
+                    + inbox.getChildren().size() + " child and " + inbox.getSize() + " KB");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Directory buildColdTree(String name, int files) {
+        Directory directory = new Directory(name);
+        for (int i = 0; i < files; i++) {
+            directory.addComponent(new File("f" + i, 4));
+        }
+        return directory;
     }
 }
\ No newline at end of file
@@ -1,7 +1,32 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * PROBLEM STATEMENT: Massive 3D Forest Rendering
@@ -27,6 +52,8 @@ import java.util.Map;
  * 1. Intrinsic State (Shared/Heavy): Stored inside the Flyweight object.
  * 2. Extrinsic State (Unique/Light): Passed to the Flyweight methods by the client.
  * 3. Flyweight Factory: Essential for caching and reusing existing Flyweights.
+ * 4. The factory key must cover ALL intrinsic state, and the pool must be safe to
+ * hit from many loader threads at once (one flyweight per key, never two, while pooled).
  */
 
 // --- 1. THE FLYWEIGHT (Intrinsic State - Shared & Heavy) ---
@@ -46,20 +73,188 @@ class TreeSpecies {
     public void draw(int x, int y) {
         System.out.println("Drawing a " + color + " " + name + " tree at (" + x + ", " + y + ")");
     }
+
+    // Instanced variant: one call (one texture/mesh bind) for a whole batch of positions.
+    public void drawInstanced(int[] xs, int[] ys, int count) {
+        System.out.println("Drawing " + count + " " + color + " " + name + " trees in one batch");
+    }
+
+    public String getName() { return name; }
+
+    public String getColor() { return color; }
+
+    public String getTexture() { return heavyMeshAndTexture; }
+}
+
+// --- 2. THE FLYWEIGHT FACTORY (Thread-Safe Intern Pool) ---
+// The pool key is the FULL intrinsic state: a green Oak and an autumn-red Oak are
+// different flyweights and must never be handed out for each other.
+final class SpeciesKey {
+    private final String name;
+    private final String color;
+    private final String texture;
+    private final int hash;
+
+    SpeciesKey(String name, String color, String texture) {
+        this.name = name;
+        this.color = color;
+        this.texture = texture;
+        this.hash = 31 * (31 * name.hashCode() + color.hashCode()) + texture.hashCode(); // No varargs array
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof SpeciesKey)) return false;
+        SpeciesKey that = (SpeciesKey) other;
+        return name.equals(that.name) && color.equals(that.color) && texture.equals(that.texture);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + "/" + color + "/" + texture;
+    }
+}
+
+enum EvictionPolicy {
+    NONE,    // Keep every species forever (the classic flyweight pool)
+    WEAK,    // Drop a species once no Tree refers to it any more
+    BOUNDED  // Keep at most maxSpecies, evicting the least recently used. Caveat: Trees still
+             // holding an evicted species keep it alive, and the next lookup loads a second copy
+}
+
+// Pool entry. In WEAK mode only the weak reference holds the species; otherwise `strong` does.
+final class SpeciesSlot extends WeakReference<TreeSpecies> {
+    final SpeciesKey key;
+    private final TreeSpecies strong;
+    volatile long lastUsed;
+
+    SpeciesSlot(SpeciesKey key, TreeSpecies species, boolean weak, ReferenceQueue<TreeSpecies> queue) {
+        super(species, queue);
+        this.key = key;
+        this.strong = weak ? null : species;
+        this.lastUsed = System.nanoTime();
+    }
+
+    TreeSpecies species() {
+        return strong != null ? strong : get();
+    }
 }
 
 class TreeFactory{
-    private static Map<String, TreeSpecies> treeTypes = new HashMap<>();
+    // Everything configure() replaces, swapped as one snapshot. A lookup reads the pool once,
+    // so it never sees the new policy paired with the old map (or the other way round).
+    private static final class Pool {
+        final ConcurrentHashMap<SpeciesKey, SpeciesSlot> treeTypes = new ConcurrentHashMap<>();
+        final ReferenceQueue<TreeSpecies> collected = new ReferenceQueue<>();
+        final EvictionPolicy policy;
+        final int maxSpecies;
+
+        // LongAdder, not AtomicLong: every planted tree bumps a counter, and a single
+        // contended cache line would serialize parallel world generation.
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        Pool(EvictionPolicy policy, int maxSpecies) {
+            this.policy = policy;
+            this.maxSpecies = maxSpecies;
+        }
+    }
+
+    private static volatile Pool pool = new Pool(EvictionPolicy.NONE, Integer.MAX_VALUE);
+
+    // Switches policy and starts from an empty pool (existing Trees keep their species).
+    // Lookups already in flight finish against the old pool.
+    public static void configure(EvictionPolicy newPolicy, int newMaxSpecies) {
+        pool = new Pool(newPolicy, newPolicy == EvictionPolicy.BOUNDED ? newMaxSpecies : Integer.MAX_VALUE);
+    }
 
     public static TreeSpecies getTreeSpecies(String name, String color, String texture){
-        TreeSpecies result = treeTypes.get(name);
+        Pool pool = TreeFactory.pool;
+        SpeciesKey key = new SpeciesKey(name, color, texture);
 
-        if(result==null){
-            result = new TreeSpecies(name,color,texture);
-            treeTypes.put(name,result);
+        // Fast path: a plain lock-free read, which is what nearly every call hits
+        SpeciesSlot slot = pool.treeTypes.get(key);
+        TreeSpecies result = slot == null ? null : slot.species();
+        if (result != null) {
+            pool.hits.increment();
+            touch(pool, slot);
+            return result;
         }
 
-        return result;
+        expungeCollected(pool);
+        while (true) {
+            SpeciesSlot[] created = new SpeciesSlot[1];
+            // computeIfAbsent runs the loader at most once per key, even under a stampede
+            slot = pool.treeTypes.computeIfAbsent(key, k -> {
+                created[0] = new SpeciesSlot(k, new TreeSpecies(name, color, texture),
+                        pool.policy == EvictionPolicy.WEAK, pool.collected);
+                return created[0];
+            });
+            result = slot.species();
+            if (result == null) {
+                pool.treeTypes.remove(key, slot); // Collected but not yet expunged; load it again
+                continue;
+            }
+            if (slot == created[0]) {
+                pool.misses.increment();
+                evictIfOverCapacity(pool, slot);
+            } else {
+                pool.hits.increment(); // Another thread won the race and loaded it for us
+                touch(pool, slot);
+            }
+            return result;
+        }
+    }
+
+    private static void touch(Pool pool, SpeciesSlot slot) {
+        if (pool.policy == EvictionPolicy.BOUNDED) {
+            slot.lastUsed = System.nanoTime(); // Only pay for the shared write when it matters
+        }
+    }
+
+    private static void expungeCollected(Pool pool) {
+        Reference<? extends TreeSpecies> stale;
+        while ((stale = pool.collected.poll()) != null) {
+            SpeciesSlot slot = (SpeciesSlot) stale;
+            if (pool.treeTypes.remove(slot.key, slot)) {
+                pool.evictions.increment();
+            }
+        }
+    }
+
+    // Species counts are small, so an O(n) scan for the LRU victim on overflow is fine.
+    // Eviction only forgets the species: see the BOUNDED caveat on EvictionPolicy.
+    private static void evictIfOverCapacity(Pool pool, SpeciesSlot justAdded) {
+        while (pool.treeTypes.size() > pool.maxSpecies) {
+            SpeciesSlot victim = null;
+            for (SpeciesSlot candidate : pool.treeTypes.values()) {
+                if (candidate != justAdded && (victim == null || candidate.lastUsed < victim.lastUsed)) {
+                    victim = candidate;
+                }
+            }
+            if (victim == null) return;
+            if (pool.treeTypes.remove(victim.key, victim)) {
+                pool.evictions.increment();
+            }
+        }
+    }
+
+    public static int poolSize() { return pool.treeTypes.size(); }
+
+    public static String stats() {
+        Pool pool = TreeFactory.pool;
+        long hitCount = pool.hits.sum();
+        long missCount = pool.misses.sum();
+        long total = Math.max(1, hitCount + missCount);
+        return "hits=" + hitCount + " misses=" + missCount + " evictions=" + pool.evictions.sum()
+                + " pool=" + pool.treeTypes.size() + " hitRate=" + String.format("%.4f", (double) hitCount / total);
     }
 }
 
@@ -80,6 +275,10 @@ class Tree {
         // Passes its unique data to the shared object
         species.draw(x, y);
     }
+
+    public void draw(TreeSink sink) {
+        sink.accept(species, x, y);
+    }
 }
 
 class Forest {
@@ -96,9 +295,629 @@ class Forest {
             tree.draw();
         }
     }
+
+    public void draw(TreeSink sink) {
+        for (Tree tree : trees) {
+            tree.draw(sink);
+        }
+    }
+
+    public int size() { return trees.size(); }
+}
+
+// Where a draw pass sends each (flyweight, extrinsic state) pair. TreeSpecies::draw is the
+// default; benchmarks and renderers plug in their own.
+interface TreeSink {
+    void accept(TreeSpecies species, int x, int y);
+}
+
+// --- 4. PACKED FOREST (Struct-of-Arrays Extrinsic State) ---
+// A Tree object is ~24 bytes of header and fields plus a list slot, just to hold two ints
+// and a pointer. Here the extrinsic state lives in parallel primitive arrays and the species
+// pointer shrinks to a 2-byte id into a per-forest dictionary: 4 + 4 + 2 = 10 bytes a tree.
+// Storage grows in fixed-size chunks, so growth never copies what is already planted.
+class PackedForest {
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 65,536 trees per chunk
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] xChunks = new int[0][];
+    private int[][] yChunks = new int[0][];
+    private short[][] speciesChunks = new short[0][];
+    private int count;
+
+    // Species dictionary: id -> flyweight, and the reverse for planting
+    private final List<TreeSpecies> speciesById = new ArrayList<>();
+    private final Map<TreeSpecies, Integer> idBySpecies = new IdentityHashMap<>();
+    private TreeSpecies lastSpecies; // Planting tends to repeat a species; skip the map lookup
+    private short lastId;
+
+    private ForestGridIndex gridIndex; // Built lazily for viewport draws
+
+    public void plantTree(int x, int y, String name, String color, String texture) {
+        plantTree(x, y, TreeFactory.getTreeSpecies(name, color, texture));
+    }
+
+    public void plantTree(int x, int y, TreeSpecies species) {
+        plantTree(x, y, idOf(species));
+    }
+
+    public void plantTree(int x, int y, short speciesId) {
+        int chunk = count >>> CHUNK_SHIFT;
+        if (chunk == xChunks.length) {
+            addChunk();
+        }
+        int slot = count & CHUNK_MASK;
+        xChunks[chunk][slot] = x;
+        yChunks[chunk][slot] = y;
+        speciesChunks[chunk][slot] = speciesId;
+        count++;
+    }
+
+    public short idOf(TreeSpecies species) {
+        if (species == lastSpecies) return lastId;
+        Integer id = idBySpecies.get(species);
+        if (id == null) {
+            if (speciesById.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("More than " + (Short.MAX_VALUE + 1) + " species in one forest");
+            }
+            id = speciesById.size();
+            speciesById.add(species);
+            idBySpecies.put(species, id);
+        }
+        lastSpecies = species;
+        lastId = (short) (int) id;
+        return lastId;
+    }
+
+    public TreeSpecies speciesOf(short id) { return speciesById.get(id); }
+
+    public int speciesCount() { return speciesById.size(); }
+
+    int chunkCount() { return xChunks.length; }
+
+    int chunkLength(int chunk) { return Math.min(CHUNK_SIZE, count - (chunk << CHUNK_SHIFT)); }
+
+    int[] xChunk(int chunk) { return xChunks[chunk]; }
+
+    int[] yChunk(int chunk) { return yChunks[chunk]; }
+
+    short[] speciesChunk(int chunk) { return speciesChunks[chunk]; }
+
+    private void addChunk() {
+        int chunks = xChunks.length + 1;
+        xChunks = Arrays.copyOf(xChunks, chunks);   // Copies chunk pointers only, not trees
+        yChunks = Arrays.copyOf(yChunks, chunks);
+        speciesChunks = Arrays.copyOf(speciesChunks, chunks);
+        xChunks[chunks - 1] = new int[CHUNK_SIZE];
+        yChunks[chunks - 1] = new int[CHUNK_SIZE];
+        speciesChunks[chunks - 1] = new short[CHUNK_SIZE];
+    }
+
+    public int size() { return count; }
+
+    int xAt(int index) { return xChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK]; }
+
+    int yAt(int index) { return yChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK]; }
+
+    short speciesIdAt(int index) { return speciesChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK]; }
+
+    public void draw() {
+        draw(TreeSpecies::draw);
+    }
+
+    public void draw(Viewport viewport) {
+        draw(viewport, TreeSpecies::draw);
+    }
+
+    // Planting stays a plain append; the grid is (re)built in one O(n) pass the first time a
+    // viewport is drawn after the forest changed, so bulk loads never pay per-insert index upkeep.
+    public void draw(Viewport viewport, TreeSink sink) {
+        spatialIndex().draw(viewport, sink, speciesById.toArray(new TreeSpecies[0]));
+    }
+
+    public ForestGridIndex spatialIndex() {
+        if (gridIndex == null || gridIndex.size() != count) {
+            gridIndex = ForestGridIndex.build(this);
+        }
+        return gridIndex;
+    }
+
+    // Straight loops over the arrays: sequential, prefetch-friendly, no Tree objects at all.
+    public void draw(TreeSink sink) {
+        TreeSpecies[] dictionary = speciesById.toArray(new TreeSpecies[0]);
+        for (int chunk = 0; chunk < xChunks.length; chunk++) {
+            int[] xs = xChunks[chunk];
+            int[] ys = yChunks[chunk];
+            short[] ids = speciesChunks[chunk];
+            int limit = Math.min(CHUNK_SIZE, count - (chunk << CHUNK_SHIFT));
+            for (int i = 0; i < limit; i++) {
+                sink.accept(dictionary[ids[i]], xs[i], ys[i]);
+            }
+        }
+    }
 }
 
-// --- 5. TESTER ---
+// --- 5. SPATIAL INDEX (Uniform Grid + Viewport Culling) ---
+// Axis-aligned visible rectangle, inclusive on both ends.
+final class Viewport {
+    final int minX;
+    final int minY;
+    final int maxX;
+    final int maxY;
+
+    Viewport(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    boolean contains(int x, int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+}
+
+// A uniform grid in compressed (CSR) form: trees are stored cell by cell, row-major, and
+// cellStart[c] .. cellStart[c + 1] is the slice for cell c. Because cells of one grid row
+// are adjacent, a viewport costs one contiguous slice per visible row - the work scales
+// with what is on screen, not with the size of the world. Holds its own cell-ordered copy
+// of the trees (10 bytes each) so those slices are sequential memory.
+class ForestGridIndex {
+    private static final int TARGET_TREES_PER_CELL = 16;
+
+    private final int size;
+    private final int originX;
+    private final int originY;
+    private final int cellSize;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int[] cellStart;
+    private final int[] xs;
+    private final int[] ys;
+    private final short[] speciesIds;
+
+    private ForestGridIndex(int size, int originX, int originY, int cellSize, int gridWidth, int gridHeight) {
+        this.size = size;
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellStart = new int[gridWidth * gridHeight + 1];
+        this.xs = new int[size];
+        this.ys = new int[size];
+        this.speciesIds = new short[size];
+    }
+
+    // Bulk load by counting sort: one pass to count trees per cell, a prefix sum, one pass to
+    // scatter. O(n) with no per-tree allocation, and cell size adapts to the tree density.
+    static ForestGridIndex build(PackedForest forest) {
+        int n = forest.size();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int x = forest.xAt(i);
+            int y = forest.yAt(i);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        if (n == 0) {
+            return new ForestGridIndex(0, 0, 0, 1, 1, 1);
+        }
+        long width = (long) maxX - minX + 1;
+        long height = (long) maxY - minY + 1;
+        int cellSize = (int) Math.max(1, Math.ceil(Math.sqrt((double) width * height * TARGET_TREES_PER_CELL / n)));
+        int gridWidth = (int) ((width + cellSize - 1) / cellSize);
+        int gridHeight = (int) ((height + cellSize - 1) / cellSize);
+        ForestGridIndex index = new ForestGridIndex(n, minX, minY, cellSize, gridWidth, gridHeight);
+
+        int[] cellStart = index.cellStart;
+        for (int i = 0; i < n; i++) {
+            cellStart[index.cellOf(forest.xAt(i), forest.yAt(i)) + 1]++;
+        }
+        for (int c = 0; c < cellStart.length - 1; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cursor = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int i = 0; i < n; i++) {
+            int x = forest.xAt(i);
+            int y = forest.yAt(i);
+            int slot = cursor[index.cellOf(x, y)]++;
+            index.xs[slot] = x;
+            index.ys[slot] = y;
+            index.speciesIds[slot] = forest.speciesIdAt(i);
+        }
+        return index;
+    }
+
+    private int cellOf(int x, int y) {
+        int cx = (int) (((long) x - originX) / cellSize);
+        int cy = (int) (((long) y - originY) / cellSize);
+        return cy * gridWidth + cx;
+    }
+
+    int size() { return size; }
+
+    // Returns how many trees were inspected (visible ones plus the edges of border cells).
+    int draw(Viewport viewport, TreeSink sink, TreeSpecies[] dictionary) {
+        if (size == 0) return 0;
+        long fromX = Math.max(0, ((long) viewport.minX - originX) / cellSize);
+        long toX = Math.min(gridWidth - 1, ((long) viewport.maxX - originX) / cellSize);
+        long fromY = Math.max(0, ((long) viewport.minY - originY) / cellSize);
+        long toY = Math.min(gridHeight - 1, ((long) viewport.maxY - originY) / cellSize);
+        if (viewport.maxX < originX || viewport.maxY < originY || fromX > toX || fromY > toY) {
+            return 0; // Entirely off the map
+        }
+        int inspected = 0;
+        for (int row = (int) fromY; row <= toY; row++) {
+            int start = cellStart[row * gridWidth + (int) fromX];
+            int end = cellStart[row * gridWidth + (int) toX + 1];
+            inspected += end - start;
+            for (int i = start; i < end; i++) {
+                if (viewport.contains(xs[i], ys[i])) {
+                    sink.accept(dictionary[speciesIds[i]], xs[i], ys[i]);
+                }
+            }
+        }
+        return inspected;
+    }
+
+    int cellSize() { return cellSize; }
+}
+
+// --- 6. SPECIES-BATCHED RENDERING (Instancing) ---
+// All the positions of one species, ready for a single instanced draw.
+final class SpeciesBatch {
+    final TreeSpecies species;
+    final int[] xs;
+    final int[] ys;
+
+    SpeciesBatch(TreeSpecies species, int count) {
+        this.species = species;
+        this.xs = new int[count];
+        this.ys = new int[count];
+    }
+
+    int count() { return xs.length; }
+}
+
+// What a GPU would be: binding a species is the expensive state change, drawing is cheap.
+interface RenderSink {
+    void drawTree(TreeSpecies species, int x, int y);                     // Binds if the species changed
+    void drawBatch(TreeSpecies species, int[] xs, int[] ys, int count);   // One bind per batch
+}
+
+// Software stand-in for a GPU: "binding" copies the species' texture state into the active
+// slot, drawing plots into a coarse framebuffer. Counts binds (state switches) and instances.
+class HeadlessRenderer implements RenderSink {
+    private static final int TEXTURE_STATE_BYTES = 256;
+    private static final int FRAME_SIDE = 1024;
+
+    private final int worldShift; // World coordinates >> shift = framebuffer pixel
+    private final byte[] framebuffer = new byte[FRAME_SIDE * FRAME_SIDE];
+    private final byte[] activeTexture = new byte[TEXTURE_STATE_BYTES];
+    private final Map<TreeSpecies, byte[]> textureMemory = new IdentityHashMap<>();
+    private TreeSpecies bound;
+    private long stateSwitches;
+    private long instancesDrawn;
+
+    HeadlessRenderer(int worldSide) {
+        int shift = 0;
+        while ((worldSide >> shift) > FRAME_SIDE) shift++;
+        this.worldShift = shift;
+    }
+
+    private void bind(TreeSpecies species) {
+        if (species == bound) return;
+        byte[] texture = textureMemory.computeIfAbsent(species,
+                s -> Arrays.copyOf(s.getTexture().getBytes(StandardCharsets.UTF_8), TEXTURE_STATE_BYTES));
+        System.arraycopy(texture, 0, activeTexture, 0, TEXTURE_STATE_BYTES);
+        bound = species;
+        stateSwitches++;
+    }
+
+    private void plot(int x, int y) {
+        int px = (x >> worldShift) & (FRAME_SIDE - 1);
+        int py = (y >> worldShift) & (FRAME_SIDE - 1);
+        framebuffer[py * FRAME_SIDE + px] = activeTexture[(x ^ y) & (TEXTURE_STATE_BYTES - 1)];
+    }
+
+    @Override
+    public void drawTree(TreeSpecies species, int x, int y) {
+        bind(species);
+        plot(x, y);
+        instancesDrawn++;
+    }
+
+    @Override
+    public void drawBatch(TreeSpecies species, int[] xs, int[] ys, int count) {
+        bind(species);
+        for (int i = 0; i < count; i++) {
+            plot(xs[i], ys[i]);
+        }
+        instancesDrawn += count;
+    }
+
+    long stateSwitches() { return stateSwitches; }
+
+    long instancesDrawn() { return instancesDrawn; }
+
+    void resetCounters() {
+        bound = null;
+        stateSwitches = 0;
+        instancesDrawn = 0;
+    }
+}
+
+// Groups a PackedForest by species, like building instance buffers. The forest's chunks are
+// split into one slice per worker; each slice counts its trees per species, a prefix sum over
+// (species, slice) gives every slice its own disjoint range in each batch, and the slices then
+// scatter in parallel with no locks and no shared writes. Output order is deterministic.
+class SpeciesBatchBuilder {
+    private final ExecutorService workers;
+    private final int slices;
+
+    SpeciesBatchBuilder(ExecutorService workers, int slices) {
+        this.workers = workers;
+        this.slices = slices;
+    }
+
+    List<SpeciesBatch> build(PackedForest forest) {
+        int speciesCount = forest.speciesCount();
+        int chunks = forest.chunkCount();
+        int sliceCount = Math.max(1, Math.min(slices, chunks));
+        int[][] counts = new int[sliceCount][speciesCount];
+
+        // Pass 1: per-slice histograms
+        runSlices(sliceCount, chunks, (slice, chunk) -> {
+            short[] ids = forest.speciesChunk(chunk);
+            int[] histogram = counts[slice];
+            for (int i = 0, n = forest.chunkLength(chunk); i < n; i++) {
+                histogram[ids[i]]++;
+            }
+        });
+
+        // Prefix sums: offsets[slice][species] is where that slice starts writing in the batch
+        List<SpeciesBatch> batches = new ArrayList<>();
+        int[][] offsets = new int[sliceCount][speciesCount];
+        for (int species = 0; species < speciesCount; species++) {
+            int total = 0;
+            for (int slice = 0; slice < sliceCount; slice++) {
+                offsets[slice][species] = total;
+                total += counts[slice][species];
+            }
+            batches.add(new SpeciesBatch(forest.speciesOf((short) species), total));
+        }
+
+        // Pass 2: scatter into the reserved ranges
+        SpeciesBatch[] bySpecies = batches.toArray(new SpeciesBatch[0]);
+        runSlices(sliceCount, chunks, (slice, chunk) -> {
+            int[] cursor = offsets[slice];
+            int[] xs = forest.xChunk(chunk);
+            int[] ys = forest.yChunk(chunk);
+            short[] ids = forest.speciesChunk(chunk);
+            for (int i = 0, n = forest.chunkLength(chunk); i < n; i++) {
+                SpeciesBatch batch = bySpecies[ids[i]];
+                int slot = cursor[ids[i]]++;
+                batch.xs[slot] = xs[i];
+                batch.ys[slot] = ys[i];
+            }
+        });
+        return batches;
+    }
+
+    // Slice s owns a contiguous run of chunks, so slice order == forest order.
+    private void runSlices(int sliceCount, int chunks, ChunkWork work) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int slice = 0; slice < sliceCount; slice++) {
+            int s = slice;
+            int from = (int) ((long) chunks * slice / sliceCount);
+            int to = (int) ((long) chunks * (slice + 1) / sliceCount);
+            tasks.add(() -> {
+                for (int chunk = from; chunk < to; chunk++) {
+                    work.run(s, chunk);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch build failed", e.getCause());
+        }
+    }
+
+    private interface ChunkWork {
+        void run(int slice, int chunk);
+    }
+
+    static void render(List<SpeciesBatch> batches, RenderSink sink) {
+        for (SpeciesBatch batch : batches) {
+            sink.drawBatch(batch.species, batch.xs, batch.ys, batch.count());
+        }
+    }
+}
+
+// --- 7. MEMORY-MAPPED WORLD FILE (Zero-Allocation Load) ---
+// Layout (little-endian):
+//   header     : magic "FRST", version, speciesCount, treeCount (long)
+//   dictionary : per species three length-prefixed UTF-8 strings (name, color, texture)
+//   records    : treeCount x { int x, int y, short speciesId } = 10 bytes each
+// Saving is one sequential write. Loading resolves the few dictionary entries through
+// TreeFactory (so flyweights are shared with the rest of the game) and maps the record
+// region as-is: no parsing, no objects per tree, pages fault in only when touched.
+// Nothing read from the file is trusted: counts and lengths are checked against the file size
+// before anything is allocated, and a bad species id in a record fails with a clear error.
+class WorldFile {
+    static final int MAGIC = 0x54535246; // "FRST" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    static final int RECORD_BYTES = 10;
+    static final int MAX_SPECIES = Short.MAX_VALUE + 1; // Records store the id as a short
+    static final int MAX_STRING_BYTES = 1 << 19; // Well under save()'s 1 MB buffer
+
+    public static void save(PackedForest forest, Path path) throws IOException {
+        if (forest.speciesCount() > MAX_SPECIES) {
+            throw new IOException(forest.speciesCount() + " species don't fit the format's " + MAX_SPECIES);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(forest.speciesCount()).putLong(forest.size());
+            for (int id = 0; id < forest.speciesCount(); id++) {
+                TreeSpecies species = forest.speciesOf((short) id);
+                for (String field : new String[] {species.getName(), species.getColor(), species.getTexture()}) {
+                    byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > MAX_STRING_BYTES) {
+                        throw new IOException("Species field longer than " + MAX_STRING_BYTES + " bytes: " + species.getName());
+                    }
+                    if (buffer.remaining() < 4 + bytes.length) drain(channel, buffer);
+                    buffer.putInt(bytes.length).put(bytes);
+                }
+            }
+            for (int chunk = 0; chunk < forest.chunkCount(); chunk++) {
+                int[] xs = forest.xChunk(chunk);
+                int[] ys = forest.yChunk(chunk);
+                short[] ids = forest.speciesChunk(chunk);
+                for (int i = 0, n = forest.chunkLength(chunk); i < n; i++) {
+                    if (buffer.remaining() < RECORD_BYTES) drain(channel, buffer);
+                    buffer.putInt(xs[i]).putInt(ys[i]).putShort(ids[i]);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static MappedWorld open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = read(channel, 0, HEADER_BYTES, path);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " world file: " + path);
+            }
+            int speciesCount = header.getInt();
+            long treeCount = header.getLong();
+            // Every species takes at least three length prefixes, every tree a full record
+            if (speciesCount < 0 || speciesCount > MAX_SPECIES || 12L * speciesCount > fileSize - HEADER_BYTES) {
+                throw new IOException("Corrupt world file: " + speciesCount + " species in " + path);
+            }
+            if (treeCount < 0 || treeCount > (fileSize - HEADER_BYTES) / RECORD_BYTES) {
+                throw new IOException("Corrupt world file: " + treeCount + " trees in " + path);
+            }
+            // The dictionary is read, not mapped: it is small, but has no size limit of its own
+            TreeSpecies[] dictionary = new TreeSpecies[speciesCount];
+            long[] position = {HEADER_BYTES};
+            for (int id = 0; id < speciesCount; id++) {
+                dictionary[id] = TreeFactory.getTreeSpecies(readString(channel, position, fileSize, path),
+                        readString(channel, position, fileSize, path), readString(channel, position, fileSize, path));
+            }
+            long recordsStart = position[0];
+            if (recordsStart + treeCount * RECORD_BYTES != fileSize) {
+                throw new IOException("Truncated world file: expected " + treeCount + " trees in " + path);
+            }
+            // A single mapping tops out at 2 GB, so large worlds are mapped in whole-record segments
+            int segmentCount = (int) ((treeCount + MappedWorld.SEGMENT_RECORDS - 1) / MappedWorld.SEGMENT_RECORDS);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int segment = 0; segment < segmentCount; segment++) {
+                long first = (long) segment * MappedWorld.SEGMENT_RECORDS;
+                long records = Math.min(MappedWorld.SEGMENT_RECORDS, treeCount - first);
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        recordsStart + first * RECORD_BYTES, records * RECORD_BYTES);
+                segments[segment].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedWorld(dictionary, treeCount, segments); // Mappings outlive the channel
+        }
+    }
+
+    private static String readString(FileChannel channel, long[] position, long fileSize, Path path) throws IOException {
+        int length = read(channel, position[0], 4, path).getInt();
+        if (length < 0 || length > MAX_STRING_BYTES || length > fileSize - position[0] - 4) {
+            throw new IOException("Corrupt world file: string of " + length + " bytes at offset " + position[0] + " in " + path);
+        }
+        ByteBuffer bytes = read(channel, position[0] + 4, length, path);
+        position[0] += 4 + length;
+        return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated world file at offset " + (position + buffer.position()) + ": " + path);
+            }
+        }
+        return buffer.flip();
+    }
+}
+
+// A read-only forest backed directly by the mapped file. Accessors read the record in place.
+class MappedWorld {
+    static final int SEGMENT_SHIFT = 26;
+    static final long SEGMENT_RECORDS = 1L << SEGMENT_SHIFT; // 64M records = 640 MB per mapping
+    private static final long SEGMENT_MASK = SEGMENT_RECORDS - 1;
+
+    private final TreeSpecies[] dictionary;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    MappedWorld(TreeSpecies[] dictionary, long size, MappedByteBuffer[] segments) {
+        this.dictionary = dictionary;
+        this.size = size;
+        this.segments = segments;
+    }
+
+    public long size() { return size; }
+
+    public int speciesCount() { return dictionary.length; }
+
+    public int x(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getInt((int) (index & SEGMENT_MASK) * WorldFile.RECORD_BYTES);
+    }
+
+    public int y(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getInt((int) (index & SEGMENT_MASK) * WorldFile.RECORD_BYTES + 4);
+    }
+
+    public TreeSpecies species(long index) {
+        return speciesAt(segments[(int) (index >>> SEGMENT_SHIFT)], (int) (index & SEGMENT_MASK) * WorldFile.RECORD_BYTES);
+    }
+
+    public void draw(TreeSink sink) {
+        for (MappedByteBuffer segment : segments) {
+            for (int offset = 0, end = segment.capacity(); offset < end; offset += WorldFile.RECORD_BYTES) {
+                sink.accept(speciesAt(segment, offset), segment.getInt(offset), segment.getInt(offset + 4));
+            }
+        }
+    }
+
+    // Records are only read when touched, so a corrupt id can only be caught here.
+    private TreeSpecies speciesAt(MappedByteBuffer segment, int offset) {
+        short id = segment.getShort(offset + 8);
+        if (id < 0 || id >= dictionary.length) {
+            throw new UncheckedIOException(new IOException("Corrupt world file: species id " + id
+                    + " but only " + dictionary.length + " species"));
+        }
+        return dictionary[id];
+    }
+}
+
+// --- 8. TESTER ---
 public class Flyweight {
     public static void main(String[] args) {
         Forest forest = new Forest();
@@ -116,5 +935,360 @@ public class Flyweight {
 
         System.out.println("\n[SYSTEM] Total Tree Objects in memory: 5");
         System.out.println("[SYSTEM] Total Heavy TreeSpecies in memory: 2 (Massive RAM savings!)");
+
+        demoConcurrentPool();
+    }
+
+    // Parallel world generation: many tiles planting at once against one shared pool.
+    private static void demoConcurrentPool() {
+        System.out.println("\n--- Full-State Keys ---");
+        TreeSpecies greenOak = TreeFactory.getTreeSpecies("Oak", "Green", "OakTexture.png");
+        TreeSpecies autumnOak = TreeFactory.getTreeSpecies("Oak", "Autumn Red", "OakAutumn.png");
+        System.out.println("Green Oak and Autumn Oak are distinct flyweights: " + (greenOak != autumnOak));
+        System.out.println("[METRICS] " + TreeFactory.stats());
+
+        System.out.println("\n--- Parallel World Generation (8 species, 2,000,000 trees) ---");
+        String[][] palette = {
+            {"Oak", "Green", "OakTexture.png"}, {"Oak", "Autumn Red", "OakAutumn.png"},
+            {"Pine", "Dark Green", "PineTexture.png"}, {"Pine", "Snowy", "PineSnow.png"},
+            {"Birch", "White", "BirchTexture.png"}, {"Maple", "Orange", "MapleTexture.png"},
+            {"Willow", "Green", "WillowTexture.png"}, {"Palm", "Yellow Green", "PalmTexture.png"}
+        };
+        int treesPerRun = 2_000_000;
+        for (int threads : new int[] {1, 4}) {
+            TreeFactory.configure(EvictionPolicy.NONE, 0);
+            CountDownLatch done = new CountDownLatch(threads);
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int tile = t;
+                new Thread(() -> {
+                    Forest chunk = new Forest();
+                    for (int i = tile; i < treesPerRun; i += threads) {
+                        String[] species = palette[i % palette.length];
+                        chunk.plantTree(i % 4096, i / 4096, species[0], species[1], species[2]);
+                    }
+                    done.countDown();
+                }).start();
+            }
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.println(threads + " thread(s): " + (System.nanoTime() - start) / 1_000_000 + " ms ("
+                    + Runtime.getRuntime().availableProcessors() + " cores available)");
+            System.out.println("[METRICS] " + TreeFactory.stats());
+        }
+
+        System.out.println("\n--- Bounded Pool (max 2 species) ---");
+        TreeFactory.configure(EvictionPolicy.BOUNDED, 2);
+        TreeFactory.getTreeSpecies("Oak", "Green", "OakTexture.png");
+        TreeSpecies heldPine = TreeFactory.getTreeSpecies("Pine", "Dark Green", "PineTexture.png");
+        TreeFactory.getTreeSpecies("Oak", "Green", "OakTexture.png");       // Oak is now most recent
+        TreeFactory.getTreeSpecies("Birch", "White", "BirchTexture.png");   // Evicts Pine
+        TreeFactory.getTreeSpecies("Oak", "Green", "OakTexture.png");       // Still pooled: a hit
+        System.out.println("[METRICS] " + TreeFactory.stats());
+        TreeSpecies reloadedPine = TreeFactory.getTreeSpecies("Pine", "Dark Green", "PineTexture.png");
+        System.out.println("[WARN] Evicted Pine still held elsewhere, reload is a second copy: "
+                + (heldPine != reloadedPine));
+
+        System.out.println("\n--- Weak Pool (species live only while trees use them) ---");
+        TreeFactory.configure(EvictionPolicy.WEAK, 0);
+        Forest temporary = new Forest();
+        temporary.plantTree(1, 1, "Cactus", "Green", "CactusTexture.png");
+        temporary = null;
+        System.gc();
+        TreeFactory.getTreeSpecies("Cactus", "Green", "CactusTexture.png"); // Reloaded once the old one was collected
+        System.out.println("[METRICS] " + TreeFactory.stats());
+        TreeFactory.configure(EvictionPolicy.NONE, 0);
+
+        demoPackedForest();
+        demoViewportCulling();
+        demoBatchedRendering();
+        demoWorldFile();
+    }
+
+    // Startup cost of a saved world: replaying plantTree calls vs mapping the file.
+    private static void demoWorldFile() {
+        System.out.println("\n--- Memory-Mapped World File (20,000,000 trees) ---");
+        String[][] palette = {
+            {"Oak", "Green", "OakTexture.png"}, {"Pine", "Dark Green", "PineTexture.png"},
+            {"Birch", "White", "BirchTexture.png"}, {"Maple", "Orange", "MapleTexture.png"}
+        };
+        int treeCount = 20_000_000;
+        int[] xs = new int[treeCount];
+        int[] ys = new int[treeCount];
+        byte[] kinds = new byte[treeCount];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < treeCount; i++) {
+            xs[i] = random.nextInt(1_000_000);
+            ys[i] = random.nextInt(1_000_000);
+            kinds[i] = (byte) random.nextInt(palette.length);
+        }
+
+        // Today's startup: every tree goes through plantTree and a factory lookup
+        long start = System.nanoTime();
+        PackedForest replayed = new PackedForest();
+        for (int i = 0; i < treeCount; i++) {
+            String[] species = palette[kinds[i]];
+            replayed.plantTree(xs[i], ys[i], species[0], species[1], species[2]);
+        }
+        long replayMillis = (System.nanoTime() - start) / 1_000_000;
+        xs = null;
+        ys = null;
+        kinds = null;
+
+        Path path = null;
+        try {
+            path = Files.createTempFile("forest", ".world");
+            start = System.nanoTime();
+            WorldFile.save(replayed, path);
+            long saveMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            MappedWorld mapped = WorldFile.open(path);
+            long openMicros = (System.nanoTime() - start) / 1_000;
+
+            long[] expected = new long[2];
+            replayed.draw((species, x, y) -> { expected[0]++; expected[1] += (long) x * 31 + y + species.hashCode(); });
+            long[] actual = new long[2];
+            start = System.nanoTime();
+            mapped.draw((species, x, y) -> { actual[0]++; actual[1] += (long) x * 31 + y + species.hashCode(); });
+            long firstDrawMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Replay " + treeCount + " plantTree calls: " + replayMillis + " ms");
+            System.out.println("Save to " + Files.size(path) / (1 << 20) + " MB file:     " + saveMillis + " ms");
+            System.out.println("Open (map) the file:             " + openMicros + " us, " + mapped.size() + " trees, "
+                    + mapped.speciesCount() + " species");
+            System.out.println("First full draw from the mapping: " + firstDrawMillis + " ms, matches replayed forest: "
+                    + (expected[0] == actual[0] && expected[1] == actual[1]));
+            System.out.println("Tree #12345 is a " + mapped.species(12_345).getName() + " at ("
+                    + mapped.x(12_345) + ", " + mapped.y(12_345) + ")");
+
+            // A dictionary bigger than 1 MB (long texture paths) loads; corrupt files fail with IOException
+            PackedForest wide = new PackedForest();
+            for (int i = 0; i < 3; i++) {
+                wide.plantTree(i, i, "Fern" + i, "Green", "textures/" + "detail/".repeat(57_000) + i + ".png");
+            }
+            WorldFile.save(wide, path);
+            System.out.println("Open a " + Files.size(path) / 1024 + " KB dictionary: "
+                    + WorldFile.open(path).speciesCount() + " species");
+            byte[] good = Files.readAllBytes(path);
+            System.out.println("Species count corrupted: " + openFailure(path, good, 8, 1_000_000));
+            System.out.println("Name length corrupted:   " + openFailure(path, good, WorldFile.HEADER_BYTES, -5));
+            byte[] badId = good.clone();
+            badId[badId.length - 2] = (byte) 0xE7; // Last record's species id -> 999
+            badId[badId.length - 1] = 0x03;
+            Files.write(path, badId);
+            try {
+                WorldFile.open(path).draw((species, x, y) -> { });
+            } catch (UncheckedIOException e) {
+                System.out.println("Species id corrupted:    " + e.getCause().getMessage());
+            }
+        } catch (IOException e) {
+            System.out.println("[ERROR] World file demo failed: " + e.getMessage());
+        } finally {
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // Temp file; the OS will clean it up
+                }
+            }
+        }
+    }
+
+    // Writes `good` with one little-endian int overwritten and reports how open() rejects it.
+    private static String openFailure(Path path, byte[] good, int offset, int value) throws IOException {
+        byte[] corrupt = good.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(path, corrupt);
+        try {
+            WorldFile.open(path);
+            return "opened?!";
+        } catch (IOException e) {
+            return e.getMessage().replace(path.toString(), "<file>");
+        }
+    }
+
+    // Species interleaved at random (the worst case for per-tree drawing) vs instanced batches.
+    private static void demoBatchedRendering() {
+        System.out.println("\n--- Species-Batched Rendering (4,000,000 trees, 8 species) ---");
+        String[][] palette = {
+            {"Oak", "Green", "OakTexture.png"}, {"Oak", "Autumn Red", "OakAutumn.png"},
+            {"Pine", "Dark Green", "PineTexture.png"}, {"Pine", "Snowy", "PineSnow.png"},
+            {"Birch", "White", "BirchTexture.png"}, {"Maple", "Orange", "MapleTexture.png"},
+            {"Willow", "Green", "WillowTexture.png"}, {"Palm", "Yellow Green", "PalmTexture.png"}
+        };
+        int worldSide = 65_536;
+        SplittableRandom random = new SplittableRandom(11);
+        PackedForest world = new PackedForest();
+        for (int i = 0; i < 4_000_000; i++) {
+            String[] species = palette[random.nextInt(palette.length)];
+            world.plantTree(random.nextInt(worldSide), random.nextInt(worldSide), species[0], species[1], species[2]);
+        }
+
+        HeadlessRenderer renderer = new HeadlessRenderer(worldSide);
+        long perTreeMicros = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            renderer.resetCounters();
+            long start = System.nanoTime();
+            world.draw(renderer::drawTree);
+            perTreeMicros = Math.min(perTreeMicros, (System.nanoTime() - start) / 1_000);
+        }
+        report("Per-tree draw", renderer, perTreeMicros);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ExecutorService pool = Executors.newFixedThreadPool(cores);
+        try {
+            for (ExecutorService workers : new ExecutorService[] {single, pool}) {
+                int slices = workers == single ? 1 : cores * 4;
+                SpeciesBatchBuilder builder = new SpeciesBatchBuilder(workers, slices);
+                long buildMicros = Long.MAX_VALUE;
+                long renderMicros = Long.MAX_VALUE;
+                for (int run = 0; run < 3; run++) {
+                    long start = System.nanoTime();
+                    List<SpeciesBatch> batches = builder.build(world);
+                    buildMicros = Math.min(buildMicros, (System.nanoTime() - start) / 1_000);
+                    renderer.resetCounters();
+                    start = System.nanoTime();
+                    SpeciesBatchBuilder.render(batches, renderer);
+                    renderMicros = Math.min(renderMicros, (System.nanoTime() - start) / 1_000);
+                }
+                System.out.println("Batch build (" + slices + " slice(s), " + (workers == single ? 1 : cores)
+                        + " worker(s)): " + buildMicros / 1_000 + " ms");
+                report("Batched draw", renderer, renderMicros);
+            }
+        } finally {
+            single.shutdown();
+            pool.shutdown();
+        }
+
+        PackedForest small = new PackedForest();
+        small.plantTree(10, 20, "Oak", "Green", "OakTexture.png");
+        small.plantTree(50, 10, "Pine", "Dark Green", "PineTexture.png");
+        small.plantTree(15, 25, "Oak", "Green", "OakTexture.png");
+        for (SpeciesBatch batch : new SpeciesBatchBuilder(ForkJoinPool.commonPool(), 1).build(small)) {
+            batch.species.drawInstanced(batch.xs, batch.ys, batch.count());
+        }
+    }
+
+    private static void report(String label, HeadlessRenderer renderer, long micros) {
+        System.out.println(label + ": " + renderer.stateSwitches() + " state switches, " + renderer.instancesDrawn()
+                + " trees in " + micros / 1_000 + " ms (" + renderer.instancesDrawn() * 1_000 / Math.max(1, micros) + "k trees/s)");
+    }
+
+    // A camera panning over a large random world: full scan + filter vs the grid index.
+    private static void demoViewportCulling() {
+        System.out.println("\n--- Viewport Culling (5,000,000 trees on a 100,000 x 100,000 map) ---");
+        SplittableRandom random = new SplittableRandom(7);
+        TreeSpecies[] species = {
+            TreeFactory.getTreeSpecies("Oak", "Green", "OakTexture.png"),
+            TreeFactory.getTreeSpecies("Pine", "Dark Green", "PineTexture.png")
+        };
+        PackedForest world = new PackedForest();
+        long start = System.nanoTime();
+        for (int i = 0; i < 5_000_000; i++) {
+            world.plantTree(random.nextInt(100_000), random.nextInt(100_000), species[i & 1]);
+        }
+        System.out.println("Planted in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        start = System.nanoTime();
+        ForestGridIndex index = world.spatialIndex();
+        System.out.println("Grid built in " + (System.nanoTime() - start) / 1_000_000 + " ms (cell size " + index.cellSize() + ")");
+
+        long[] visible = new long[1];
+        TreeSink counter = (s, x, y) -> visible[0]++;
+        int frames = 60;
+        long scanMicros = 0;
+        long gridMicros = 0;
+        long scanned = 0;
+        long inspected = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            Viewport camera = new Viewport(frame * 500, 40_000, frame * 500 + 1919, 40_000 + 1079);
+            visible[0] = 0;
+            start = System.nanoTime();
+            world.draw((s, x, y) -> {
+                if (camera.contains(x, y)) visible[0]++;
+            });
+            scanMicros += (System.nanoTime() - start) / 1_000;
+            scanned += world.size();
+            long fullScanVisible = visible[0];
+
+            visible[0] = 0;
+            start = System.nanoTime();
+            inspected += index.draw(camera, counter, species); // Ids 0 and 1 were assigned in this order
+            gridMicros += (System.nanoTime() - start) / 1_000;
+            if (visible[0] != fullScanVisible) {
+                System.out.println("[ERROR] Frame " + frame + " grid saw " + visible[0] + " trees, scan saw " + fullScanVisible);
+            }
+        }
+        System.out.println("Full scan: " + scanMicros / frames + " us/frame, " + scanned / frames + " trees inspected/frame");
+        System.out.println("Grid:      " + gridMicros / frames + " us/frame, " + inspected / frames + " trees inspected/frame (~"
+                + visible[0] + " visible)");
+
+        PackedForest visibleDemo = new PackedForest();
+        visibleDemo.plantTree(10, 20, species[0]);
+        visibleDemo.plantTree(5_000, 5_000, species[1]);
+        visibleDemo.plantTree(60, 20, species[1]);
+        System.out.println("Drawing viewport (0,0)-(100,100):");
+        visibleDemo.draw(new Viewport(0, 0, 100, 100));
+    }
+
+    // Same 10M-tree world held both ways: retained heap after GC, then a full draw pass.
+    private static void demoPackedForest() {
+        System.out.println("\n--- Object Forest vs Packed Forest (10,000,000 trees) ---");
+        int treeCount = 10_000_000;
+        String[][] palette = {
+            {"Oak", "Green", "OakTexture.png"}, {"Pine", "Dark Green", "PineTexture.png"},
+            {"Birch", "White", "BirchTexture.png"}, {"Maple", "Orange", "MapleTexture.png"}
+        };
+
+        long baseline = usedHeap();
+        Forest objectForest = new Forest();
+        for (int i = 0; i < treeCount; i++) {
+            String[] species = palette[i % palette.length];
+            objectForest.plantTree(i % 10_000, i / 10_000, species[0], species[1], species[2]);
+        }
+        long objectBytes = usedHeap() - baseline;
+        long objectMicros = timeDraw(sink -> objectForest.draw(sink));
+
+        baseline = usedHeap();
+        PackedForest packedForest = new PackedForest();
+        for (int i = 0; i < treeCount; i++) {
+            String[] species = palette[i % palette.length];
+            packedForest.plantTree(i % 10_000, i / 10_000, species[0], species[1], species[2]);
+        }
+        long packedBytes = usedHeap() - baseline;
+        long packedMicros = timeDraw(sink -> packedForest.draw(sink));
+
+        System.out.println("Object forest: " + objectBytes / (1 << 20) + " MB ("
+                + String.format("%.1f", (double) objectBytes / treeCount) + " bytes/tree), draw pass " + objectMicros / 1_000 + " ms");
+        System.out.println("Packed forest: " + packedBytes / (1 << 20) + " MB ("
+                + String.format("%.1f", (double) packedBytes / treeCount) + " bytes/tree), draw pass " + packedMicros / 1_000 + " ms");
+        System.out.println("[SYSTEM] " + packedForest.size() + " trees, " + packedForest.speciesCount() + " species, still "
+                + objectForest.size() + " in the object forest");
+    }
+
+    // Best of 3 draw passes into a sink that just folds coordinates (so the JIT can't drop the loop).
+    private static long timeDraw(Consumer<TreeSink> drawPass) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long[] checksum = new long[1];
+            long start = System.nanoTime();
+            drawPass.accept((species, x, y) -> checksum[0] += x ^ y);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000);
+            if (checksum[0] == 42) System.out.println(); // Keep the result observable
+        }
+        return best;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
     }
 }
@@ -23,70 +23,1055 @@
  * 1. The Proxy and the Real Subject share the exact same interface.
  * 2. The Proxy intercepts calls to do "housekeeping" (caching, auth, logging)
  * before or after delegating to the Real Subject.
+ * 3. Under concurrency the housekeeping must hold up too: bounded cache, one
+ * backend load per ID (single-flight), and a backend created exactly once.
  */
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 // --- 1. THE SUBJECT INTERFACE ---
 // Both the Proxy and the Real Object will implement this.
 interface TranscriptionService {
     String transcribe(String audioId);
+
+    // Batch API: many IDs in one round trip. The default just loops, so simple
+    // implementations stay simple; real backends override it.
+    default Map<String, String> transcribeBatch(List<String> audioIds) {
+        Map<String, String> results = new HashMap<>();
+        for (String audioId : audioIds) {
+            results.put(audioId, transcribe(audioId));
+        }
+        return results;
+    }
+
+    // Async API: the caller gets a future instead of parking a thread for the whole call.
+    // The default runs the blocking call on its own call thread (see CallThreads); backends and
+    // proxies override it to do better.
+    default CompletableFuture<String> transcribeAsync(String audioId) {
+        return CompletableFuture.supplyAsync(() -> transcribe(audioId), CallThreads.EXECUTOR);
+    }
+
+    // Same, but the future fails with a TimeoutException once the deadline passes.
+    default CompletableFuture<String> transcribeAsync(String audioId, Duration deadline) {
+        return transcribeAsync(audioId).orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
+
+// Where blocking calls run. On JDK 21+ each call gets its own virtual thread, which costs almost
+// nothing while it sleeps on I/O. The lookup is reflective so this file still compiles and runs
+// on JDK 17, where calls fall back to a cached pool of daemon platform threads: same behaviour,
+// but every call in flight holds an OS thread. So anything that waits for a limited resource
+// must get it *before* taking a call thread (see GrpcTranscriptionBackend.transcribeAsync);
+// then the pool never grows past the number of permits.
+final class CallThreads {
+    static final ExecutorService EXECUTOR;
+    static final boolean VIRTUAL;
+
+    static {
+        ExecutorService executor;
+        boolean virtual;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtual = true;
+        } catch (ReflectiveOperationException e) {
+            executor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "transcription-call");
+                thread.setDaemon(true);
+                return thread;
+            });
+            virtual = false;
+        }
+        EXECUTOR = executor;
+        VIRTUAL = virtual;
+    }
+
+    private CallThreads() {}
 }
 
 // --- 2. THE REAL SUBJECT (The Heavy Object) ---
 // This represents your actual connection to the backend.
 class GrpcTranscriptionBackend implements TranscriptionService {
+    // One channel only multiplexes so many concurrent streams; extra calls queue up.
+    static final int MAX_CONCURRENT_CALLS = 4; // Default stream limit
+    static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(30);
+    private static final AtomicInteger connectionsOpened = new AtomicInteger();
+
+    private final int callMillis;
+    private final boolean verbose;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong deadlineMisses = new AtomicLong();
+    private final Semaphore streams; // The concurrency limiter, shared by sync and async calls
+    private final Queue<Runnable> waitingCalls = new ConcurrentLinkedQueue<>(); // Async calls without a stream yet
 
     public GrpcTranscriptionBackend() {
+        this(1500, 2000, true);
+    }
+
+    public GrpcTranscriptionBackend(int bootMillis, int callMillis, boolean verbose) {
+        this(bootMillis, callMillis, verbose, MAX_CONCURRENT_CALLS);
+    }
+
+    public GrpcTranscriptionBackend(int bootMillis, int callMillis, boolean verbose, int maxConcurrentCalls) {
+        this.callMillis = callMillis;
+        this.verbose = verbose;
+        this.streams = new Semaphore(maxConcurrentCalls);
         // Simulating heavy startup time (e.g., loading models, establishing sockets)
-        System.out.println("--> [SYSTEM] Booting up heavy gRPC connection to Whisper backend...");
-        simulateNetworkDelay(1500);
+        connectionsOpened.incrementAndGet();
+        if (verbose) System.out.println("--> [SYSTEM] Booting up heavy gRPC connection to Whisper backend...");
+        simulateNetworkDelay(bootMillis);
     }
 
     @Override
     public String transcribe(String audioId) {
-        System.out.println("--> [NETWORK] Uploading " + audioId + " to server and computing...");
-        simulateNetworkDelay(2000);
+        calls.incrementAndGet();
+        if (verbose) System.out.println("--> [NETWORK] Uploading " + audioId + " to server and computing...");
+        roundTrip();
         return "Transcribed text for: " + audioId;
     }
 
+    // The server transcribes a batch on the GPU in about the time of one clip, so a batch
+    // costs one round trip instead of one per ID.
+    @Override
+    public Map<String, String> transcribeBatch(List<String> audioIds) {
+        calls.incrementAndGet();
+        if (verbose) System.out.println("--> [NETWORK] Uploading batch of " + audioIds.size() + " clips...");
+        roundTrip();
+        Map<String, String> results = new HashMap<>();
+        for (String audioId : audioIds) {
+            results.put(audioId, "Transcribed text for: " + audioId);
+        }
+        return results;
+    }
+
+    private void roundTrip() {
+        streams.acquireUninterruptibly();
+        try {
+            simulateNetworkDelay(callMillis);
+        } finally {
+            releaseStream();
+        }
+    }
+
+    // Every release goes through here, so a queued async call picks up the freed stream.
+    private void releaseStream() {
+        streams.release();
+        dispatchWaiting();
+    }
+
+    // Hands free streams to queued async calls. Runs after every enqueue and every release, so
+    // whichever of the two happens second sees the other: no call waits next to a free stream.
+    private void dispatchWaiting() {
+        while (!waitingCalls.isEmpty() && streams.tryAcquire()) {
+            Runnable call = waitingCalls.poll();
+            if (call == null) {
+                streams.release(); // Someone else took it; loop re-checks
+                continue;
+            }
+            CallThreads.EXECUTOR.execute(() -> runWhileQueued(call));
+        }
+    }
+
+    // Runs on a call thread holding one stream. When a call finishes, the stream and the thread
+    // go straight to the next queued call instead of back to the pool, which would otherwise
+    // start a fresh thread for it while this one is still winding down.
+    private void runWhileQueued(Runnable first) {
+        Runnable call = first;
+        while (call != null) {
+            call.run();
+            call = waitingCalls.poll();
+        }
+        releaseStream();
+    }
+
+    @Override
+    public CompletableFuture<String> transcribeAsync(String audioId) {
+        return transcribeAsync(audioId, DEFAULT_DEADLINE);
+    }
+
+    // A call waiting for a stream is just an entry in waitingCalls; it gets a call thread only
+    // once it holds a stream, so threads in use never exceed the stream limit (on JDK 17's
+    // platform-thread fallback too). The deadline covers the whole call, including the wait in
+    // the queue: a call that times out there is dropped without being sent.
+    @Override
+    public CompletableFuture<String> transcribeAsync(String audioId, Duration deadline) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        waitingCalls.add(() -> {
+            if (result.isDone()) return; // Timed out or cancelled while queued: don't send it
+            calls.incrementAndGet();
+            if (verbose) System.out.println("--> [NETWORK] (async) Uploading " + audioId + "...");
+            simulateNetworkDelay(callMillis);
+            result.complete("Transcribed text for: " + audioId);
+        });
+        dispatchWaiting();
+        // Fails the caller on time even if the call is still queued or on the wire
+        return result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((text, error) -> {
+                    if (error instanceof TimeoutException) deadlineMisses.incrementAndGet();
+                });
+    }
+
+    public long deadlineMisses() { return deadlineMisses.get(); }
+
+    public long callCount() { return calls.get(); }
+
+    public static int connectionsOpened() { return connectionsOpened.get(); }
+
     private void simulateNetworkDelay(int ms) {
-        try { Thread.sleep(ms); } catch (InterruptedException e) { }
+        try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
+
+// --- 3. THE CACHE (Segmented LRU + TTL) ---
+// A bounded cache that many threads can hit at once. Keys are spread over independently
+// locked segments, each an access-ordered LinkedHashMap, so eviction is LRU within a
+// segment (approximate LRU overall) and threads only contend when they share a segment.
+// Entries also expire after a TTL so stale transcripts eventually get refreshed.
+class TranscriptCache {
+    private static final int SEGMENTS = 16; // Power of two
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    TranscriptCache(int maxEntries, Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    String get(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            CachedTranscript entry = segment.get(key);
+            if (entry == null) return null;
+            if (System.nanoTime() - entry.expiresAt >= 0) {
+                segment.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry.text;
+        }
+    }
+
+    void put(String key, String text) {
+        put(key, text, ttlNanos);
+    }
+
+    // For entries that have already lived part of their TTL somewhere else (the disk tier).
+    void put(String key, String text, long remainingNanos) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new CachedTranscript(text, System.nanoTime() + Math.min(remainingNanos, ttlNanos)));
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    long evictions() { return evictions.sum(); }
+
+    long expirations() { return expirations.sum(); }
+
+    private static final class CachedTranscript {
+        final String text;
+        final long expiresAt;
+
+        CachedTranscript(String text, long expiresAt) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Access order + removeEldestEntry is the classic LinkedHashMap LRU.
+    @SuppressWarnings("serial") // Serializable only via LinkedHashMap; the cache is never serialized
+    private final class Segment extends LinkedHashMap<String, CachedTranscript> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedTranscript> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
+
+// --- 4. THE DISK TIER (Append-Only Mapped Log) ---
+// Second cache tier that survives restarts. The log file is pre-sized to the size cap and
+// memory-mapped once; puts append a record at the write position, gets read straight out of
+// the mapping via an in-memory index (audioId -> offset). On open, the index is rebuilt by
+// one sequential scan, which stops at the first empty or torn record, so a crash mid-append
+// just loses that record. Large transcripts are deflated. When the log is full it is
+// compacted into a fresh file holding only the newest live records (oldest dropped first).
+// Each record keeps its wall-clock write time, so readers can apply a TTL across restarts.
+//
+// Record: int length | byte flags | short keyLength | key | long writtenAtMillis | int rawLength | value | int crc32
+class DiskTranscriptStore implements AutoCloseable {
+    private static final int MAGIC = 0x54524c47; // "TRLG"
+    private static final int HEADER_BYTES = 8;   // magic + version
+    private static final int VERSION = 2;       // 2 added writtenAtMillis; older logs are started over
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int COMPRESS_THRESHOLD = 1024;
+    private static final double COMPACT_TARGET = 0.75; // Fill level to aim for after compaction
+
+    private final Path path;
+    private final int capacity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> index = new HashMap<>(); // Guarded by lock
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private int writePosition;
+    private long compactions;
+    private long dropped;
+    private long rawBytes;
+    private long storedBytes;
+
+    DiskTranscriptStore(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        boolean existing = Files.exists(path) && Files.size(path) >= HEADER_BYTES;
+        map(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        if (existing && log.getInt(0) == MAGIC && log.getInt(4) == VERSION) {
+            recover();
+        } else {
+            log.putInt(0, MAGIC).putInt(4, VERSION);
+            log.putInt(HEADER_BYTES, 0); // An old-format log's records must not be recovered as ours
+            writePosition = HEADER_BYTES;
+        }
+    }
+
+    private void map(FileChannel newChannel) throws IOException {
+        channel = newChannel;
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity); // Grows the file to the cap
+    }
+
+    // Sequential scan; later records for the same ID win, exactly like the original writes.
+    private void recover() {
+        int position = HEADER_BYTES;
+        while (position + 4 <= capacity) {
+            int length = log.getInt(position);
+            if (length <= 0 || position + 4 + length > capacity || !checksumMatches(position, length)) {
+                break; // End of log (or a torn tail from a crash)
+            }
+            index.put(keyAt(position), position);
+            position += 4 + length;
+        }
+        writePosition = position;
+        log.putInt(writePosition, 0); // Make sure a torn tail can't be mistaken for a record later
+    }
+
+    String get(String audioId) {
+        Entry entry = read(audioId);
+        return entry == null ? null : entry.text;
+    }
+
+    Entry read(String audioId) {
+        lock.readLock().lock();
+        try {
+            Integer position = index.get(audioId);
+            return position == null ? null : entryAt(position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(String audioId, String transcript) {
+        put(audioId, transcript, System.currentTimeMillis());
+    }
+
+    void put(String audioId, String transcript, long writtenAtMillis) {
+        byte[] key = audioId.getBytes(StandardCharsets.UTF_8);
+        byte[] raw = transcript.getBytes(StandardCharsets.UTF_8);
+        byte[] stored = raw;
+        byte flags = 0;
+        if (raw.length >= COMPRESS_THRESHOLD) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                stored = deflated;
+                flags = FLAG_DEFLATED;
+            }
+        }
+        int length = 1 + 2 + key.length + 8 + 4 + stored.length + 4;
+        if (HEADER_BYTES + 4 + length > capacity * COMPACT_TARGET) {
+            return; // Too big to ever fit comfortably; the heap tier still has it
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (writePosition + 4 + length + 4 > capacity) { // +4 keeps room for the end marker
+                compact(4 + length);
+            }
+            int position = writePosition;
+            log.position(position + 4);
+            log.put(flags).putShort((short) key.length).put(key).putLong(writtenAtMillis).putInt(raw.length).put(stored);
+            log.putInt(crc(position, length));
+            log.putInt(position + 4 + length, 0);
+            log.putInt(position, length); // Length last: the record only "exists" once it is whole
+            writePosition = position + 4 + length;
+            index.put(audioId, position);
+            rawBytes += raw.length;
+            storedBytes += stored.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copies the newest live records into a fresh file, dropping the oldest until the log is at
+    // most COMPACT_TARGET full with room for the incoming record, then atomically swaps it in.
+    // Nothing in memory changes until the swap has happened, so a failed compaction leaves the
+    // store exactly as it was (still full; the put that triggered it fails).
+    private void compact(int incoming) {
+        List<Map.Entry<String, Integer>> live = new ArrayList<>(index.entrySet());
+        live.sort((a, b) -> Integer.compare(b.getValue(), a.getValue())); // Newest first
+        long budget = (long) (capacity * COMPACT_TARGET) - HEADER_BYTES - incoming;
+        List<Map.Entry<String, Integer>> kept = new ArrayList<>();
+        long used = 0;
+        for (Map.Entry<String, Integer> entry : live) {
+            int size = 4 + log.getInt(entry.getValue());
+            if (used + size > budget) break;
+            used += size;
+            kept.add(entry);
+        }
+        Collections.reverse(kept); // Back to write order, so recovery still sees newest last
+
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel freshChannel = null;
+        try {
+            freshChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer fresh = freshChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            fresh.putInt(0, MAGIC).putInt(4, VERSION);
+            int position = HEADER_BYTES;
+            Map<String, Integer> freshIndex = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : kept) {
+                int from = entry.getValue();
+                int size = 4 + log.getInt(from);
+                fresh.put(position, log, from, size);
+                freshIndex.put(entry.getKey(), position);
+                position += size;
+            }
+            fresh.putInt(position, 0);
+            fresh.force();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close(); // The old mapping stays valid until it is garbage collected
+            channel = freshChannel;
+            log = fresh;
+            index.clear();
+            index.putAll(freshIndex);
+            dropped += live.size() - kept.size();
+            writePosition = position;
+            compactions++;
+        } catch (IOException e) {
+            if (freshChannel != null && freshChannel != channel) {
+                try {
+                    freshChannel.close();
+                    Files.deleteIfExists(temp);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException("Compaction of " + path + " failed", e);
+        }
+    }
+
+    private String keyAt(int position) {
+        int keyLength = log.getShort(position + 5);
+        byte[] key = new byte[keyLength];
+        log.get(position + 7, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private Entry entryAt(int position) {
+        int length = log.getInt(position);
+        byte flags = log.get(position + 4);
+        int keyLength = log.getShort(position + 5);
+        long writtenAtMillis = log.getLong(position + 7 + keyLength);
+        int rawLength = log.getInt(position + 7 + keyLength + 8);
+        int valueStart = position + 7 + keyLength + 8 + 4;
+        byte[] stored = new byte[position + 4 + length - 4 - valueStart];
+        log.get(valueStart, stored);
+        byte[] raw = (flags & FLAG_DEFLATED) != 0 ? inflate(stored, rawLength) : stored;
+        return new Entry(new String(raw, StandardCharsets.UTF_8), writtenAtMillis);
+    }
+
+    private boolean checksumMatches(int position, int length) {
+        return log.getInt(position + length) == crc(position, length);
+    }
+
+    // CRC over everything between the length field and the crc itself.
+    private int crc(int position, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(log.slice(position + 4, length - 4));
+        return (int) crc.getValue();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(stored);
+        byte[] raw = new byte[rawLength];
+        try {
+            int filled = 0;
+            while (filled < rawLength && !inflater.finished()) {
+                filled += inflater.inflate(raw, filled, rawLength - filled);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed transcript", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    int entries() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String stats() {
+        lock.readLock().lock();
+        try {
+            return "entries=" + index.size() + " used=" + writePosition / 1024 + "KB/" + capacity / 1024 + "KB"
+                    + " compactions=" + compactions + " dropped=" + dropped
+                    + (rawBytes == 0 ? "" : " compression=" + String.format("%.1fx", (double) rawBytes / storedBytes));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.force();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static final class Entry {
+        final String text;
+        final long writtenAtMillis;
+
+        Entry(String text, long writtenAtMillis) {
+            this.text = text;
+            this.writtenAtMillis = writtenAtMillis;
+        }
     }
 }
 
-// --- 3. THE PROXY (The Smart Wrapper) ---
-class TranscriptionProxy implements TranscriptionService {
-    // Reference to the real service (Lazy loaded)
-    private GrpcTranscriptionBackend realBackend;
+// --- 5. THE PROXY (The Smart Wrapper) ---
+// Closing the proxy stops its batcher threads. The backend and the disk tier are supplied from
+// outside, so their owners close them.
+class TranscriptionProxy implements TranscriptionService, AutoCloseable {
+    // Reference to the real service (Lazy loaded, exactly once, via double-checked locking)
+    private final Supplier<? extends TranscriptionService> backendFactory;
+    private volatile TranscriptionService realBackend;
+    // Async callers share one boot instead of each parking a call thread in backend()
+    private final AtomicReference<CompletableFuture<TranscriptionService>> backendBoot = new AtomicReference<>();
 
     // The Cache
-    private Map<String, String> cache = new HashMap<>();
+    private final TranscriptCache cache;
+
+    // Single-flight: the first miss for an ID loads it, concurrent misses wait on the same future
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    // Optional: misses go to the backend in batches instead of one call each
+    private final TranscriptionBatcher batcher;
+
+    // Optional second tier: persistent, checked before the backend, promoted into the heap tier.
+    // Best-effort: a disk failure is logged and counted, never passed on to the caller.
+    private final DiskTranscriptStore diskTier;
+    private final long ttlMillis; // The disk tier stores wall-clock times, so it needs the TTL too
+
+    private final boolean verbose;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder diskExpirations = new LongAdder();
+    private final LongAdder diskFailures = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0);
+
+    public TranscriptionProxy() {
+        this(GrpcTranscriptionBackend::new, 10_000, Duration.ofHours(1), true);
+    }
+
+    public TranscriptionProxy(Supplier<? extends TranscriptionService> backendFactory, int maxEntries,
+                              Duration ttl, boolean verbose) {
+        this(backendFactory, maxEntries, ttl, verbose, 1, Duration.ZERO, 1);
+    }
+
+    // maxBatchSize > 1 turns on batching: misses wait up to batchWindow for company, and at most
+    // maxConcurrentBatches are on the wire at once (match it to the backend's stream limit).
+    public TranscriptionProxy(Supplier<? extends TranscriptionService> backendFactory, int maxEntries,
+                              Duration ttl, boolean verbose, int maxBatchSize, Duration batchWindow,
+                              int maxConcurrentBatches) {
+        this(backendFactory, maxEntries, ttl, verbose, maxBatchSize, batchWindow, maxConcurrentBatches, null);
+    }
+
+    public TranscriptionProxy(Supplier<? extends TranscriptionService> backendFactory, int maxEntries,
+                              Duration ttl, boolean verbose, int maxBatchSize, Duration batchWindow,
+                              int maxConcurrentBatches, DiskTranscriptStore diskTier) {
+        this.backendFactory = backendFactory;
+        this.diskTier = diskTier;
+        this.cache = new TranscriptCache(maxEntries, ttl);
+        this.ttlMillis = ttl.toMillis();
+        this.verbose = verbose;
+        this.batcher = maxBatchSize > 1
+                ? new TranscriptionBatcher(this::backend, maxBatchSize, batchWindow, maxConcurrentBatches)
+                : null;
+    }
 
     @Override
     public String transcribe(String audioId) {
         // 1. Check the cache first (Caching Proxy)
-        if (cache.containsKey(audioId)) {
-            System.out.println("[PROXY] Cache HIT! Returning instant result for: " + audioId);
-            return cache.get(audioId);
+        String cached = cache.get(audioId);
+        if (cached != null) {
+            hits.increment();
+            log("[PROXY] Cache HIT! Returning instant result for: " + audioId);
+            return cached;
+        }
+
+        // 2. Single-flight: only one caller per ID goes to the backend
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(audioId, mine);
+        if (leader != null) {
+            coalesced.increment();
+            log("[PROXY] Already loading " + audioId + ", waiting for that result...");
+            return await(leader);
+        }
+        try {
+            cached = cache.get(audioId); // A previous leader may have finished just before we won
+            if (cached != null) {
+                hits.increment();
+                mine.complete(cached);
+                return cached;
+            }
+            // 3. Second tier: a transcript from a previous run is still far cheaper than the backend
+            if (diskTier != null) {
+                String stored = promoteFromDisk(audioId);
+                if (stored != null) {
+                    log("[PROXY] Disk HIT, promoting to memory: " + audioId);
+                    mine.complete(stored);
+                    return stored;
+                }
+            }
+            // 4. Delegate to the real object and cache the result
+            misses.increment();
+            log("[PROXY] Cache MISS. Delegating to heavy backend...");
+            TranscriptionService backend = backend(); // Boot time is not load time
+            long start = System.nanoTime();
+            String result = batcher != null ? await(batcher.submit(audioId)) : backend.transcribe(audioId);
+            long elapsed = System.nanoTime() - start;
+            loadNanos.add(elapsed);
+            maxLoadNanos.accumulate(elapsed);
+            cache.put(audioId, result);
+            writeToDisk(audioId, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e); // Waiters fail too, but nothing bad gets cached
+            throw e;
+        } finally {
+            inFlight.remove(audioId, mine);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> transcribeAsync(String audioId) {
+        return transcribeAsync(audioId, GrpcTranscriptionBackend.DEFAULT_DEADLINE);
+    }
+
+    // Async twin of transcribe(): same tiers, same single-flight map (sync and async callers
+    // coalesce with each other), but nobody blocks. Waiters share the leader's load, so a
+    // leader that times out fails them too; each caller gets its own copy of the future so
+    // its deadline or cancellation never leaks into anyone else's.
+    @Override
+    public CompletableFuture<String> transcribeAsync(String audioId, Duration deadline) {
+        String cached = cache.get(audioId);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(audioId, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return leader.copy().orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        cached = cache.get(audioId);
+        if (cached != null) hits.increment();
+        String stored = cached != null || diskTier == null ? null : promoteFromDisk(audioId);
+        if (cached != null || stored != null) {
+            String text = cached != null ? cached : stored;
+            inFlight.remove(audioId, mine);
+            mine.complete(text);
+            return mine.copy();
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        CompletableFuture<String> load = batcher != null
+                ? batcher.submit(audioId)
+                : backendAsync().thenCompose(backend -> backend.transcribeAsync(audioId, deadline));
+        load.whenComplete((result, error) -> {
+            try {
+                if (error == null) {
+                    long elapsed = System.nanoTime() - start;
+                    loadNanos.add(elapsed);
+                    maxLoadNanos.accumulate(elapsed);
+                    cache.put(audioId, result);
+                    writeToDisk(audioId, result);
+                    mine.complete(result);
+                } else {
+                    mine.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                }
+            } finally {
+                inFlight.remove(audioId, mine);
+            }
+        });
+        return mine.copy().orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // A disk record older than the TTL is a miss, even if it was written before a restart; a
+    // fresh one goes into the heap tier with only the time it has left.
+    private String promoteFromDisk(String audioId) {
+        DiskTranscriptStore.Entry stored;
+        try {
+            stored = diskTier.read(audioId);
+        } catch (RuntimeException e) {
+            diskFailed("read", audioId, e);
+            return null;
+        }
+        if (stored == null) return null;
+        long ageMillis = System.currentTimeMillis() - stored.writtenAtMillis;
+        if (ageMillis >= ttlMillis) {
+            diskExpirations.increment();
+            return null;
+        }
+        diskHits.increment();
+        cache.put(audioId, stored.text, TimeUnit.MILLISECONDS.toNanos(ttlMillis - ageMillis));
+        return stored.text;
+    }
+
+    // The heap tier already has the result, so a failed disk write (e.g. a compaction that could
+    // not create its file) only costs a backend call after the next restart.
+    private void writeToDisk(String audioId, String result) {
+        if (diskTier == null) return;
+        try {
+            diskTier.put(audioId, result);
+        } catch (RuntimeException e) {
+            diskFailed("write", audioId, e);
+        }
+    }
+
+    // A broken disk tier tends to fail every call, so only the first failure is logged.
+    private void diskFailed(String operation, String audioId, RuntimeException e) {
+        diskFailures.increment();
+        if (diskFailures.sum() == 1) {
+            System.out.println("[WARN] Disk tier " + operation + " failed for " + audioId + " (later failures are only counted): "
+                    + e.getMessage());
+        }
+    }
+
+    // 5. Lazy Initialization (Virtual Proxy), safe when the first requests arrive together
+    private TranscriptionService backend() {
+        TranscriptionService backend = realBackend;
+        if (backend == null) {
+            synchronized (this) {
+                backend = realBackend;
+                if (backend == null) {
+                    backend = backendFactory.get();
+                    realBackend = backend;
+                }
+            }
+        }
+        return backend;
+    }
+
+    // The async face of backend(): booting blocks, so it happens once, on one call thread, and
+    // every async caller that arrives meanwhile chains onto that same future. A failed boot is
+    // forgotten, so the next caller tries again (as the sync path would).
+    private CompletableFuture<TranscriptionService> backendAsync() {
+        TranscriptionService backend = realBackend;
+        if (backend != null) return CompletableFuture.completedFuture(backend);
+        CompletableFuture<TranscriptionService> boot = backendBoot.get();
+        if (boot == null) {
+            CompletableFuture<TranscriptionService> started = new CompletableFuture<>();
+            if (backendBoot.compareAndSet(null, started)) {
+                CallThreads.EXECUTOR.execute(() -> {
+                    try {
+                        started.complete(backend());
+                    } catch (RuntimeException e) {
+                        backendBoot.compareAndSet(started, null);
+                        started.completeExceptionally(e);
+                    }
+                });
+            }
+            boot = backendBoot.get();
+            if (boot == null) return backendAsync(); // That boot already failed and was cleared
+        }
+        return boot;
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    @Override
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    public String stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long diskHitCount = diskHits.sum();
+        long lookups = Math.max(1, hitCount + diskHitCount + missCount + coalescedCount);
+        String batching = batcher == null ? "" : " batches=" + batcher.batchesSent()
+                + " avgBatch=" + String.format("%.1f", batcher.averageBatchSize());
+        String disk = diskTier == null ? "" : " diskHits=" + diskHitCount + " diskExpired=" + diskExpirations.sum()
+                + " diskFailures=" + diskFailures.sum();
+        return "hits=" + hitCount + disk
+                + " misses=" + missCount + " coalesced=" + coalescedCount
+                + " hitRate=" + String.format("%.3f", (double) (hitCount + diskHitCount + coalescedCount) / lookups)
+                + " avgLoad=" + (missCount == 0 ? 0 : loadNanos.sum() / missCount / 1_000_000) + "ms"
+                + " maxLoad=" + maxLoadNanos.get() / 1_000_000 + "ms"
+                + " size=" + cache.size() + " evictions=" + cache.evictions() + " expirations=" + cache.expirations()
+                + batching;
+    }
+}
+
+// --- 6. THE BATCHER (Coalescing Misses Over Time) ---
+// Callers drop their ID in a queue and get a future back. A dispatcher thread takes the first
+// waiting ID, then keeps collecting until it has maxBatchSize IDs or the window closes, and
+// hands the batch to a small sender pool (sized to the backend's concurrent streams), so the
+// next batch can fill while the previous one is on the wire. Each caller's future is
+// completed on its own, and a failed batch fails only the futures that were in it.
+// close() stops the dispatcher: batches already handed to a sender still go out, anything
+// still queued fails instead of waiting forever.
+class TranscriptionBatcher implements AutoCloseable {
+    private final Supplier<? extends TranscriptionService> backend;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<PendingTranscription> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    private volatile boolean closed = false;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedIds = new LongAdder();
+
+    TranscriptionBatcher(Supplier<? extends TranscriptionService> backend, int maxBatchSize, Duration window,
+                         int maxConcurrentBatches) {
+        this.backend = backend;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.senders = Executors.newFixedThreadPool(maxConcurrentBatches, daemon("transcription-batch-sender"));
+        this.dispatcher = daemon("transcription-batch-dispatcher").newThread(this::dispatchLoop);
+        dispatcher.start();
+    }
+
+    CompletableFuture<String> submit(String audioId) {
+        PendingTranscription pending = new PendingTranscription(audioId);
+        queue.add(pending);
+        if (closed) {
+            failQueued(); // Raced with close(): nobody is left to send it
         }
+        return pending.result;
+    }
 
-        // 2. Lazy Initialization (Virtual Proxy)
-        if (realBackend == null) {
-            realBackend = new GrpcTranscriptionBackend();
+    private void dispatchLoop() {
+        List<PendingTranscription> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                batch = new ArrayList<>(maxBatchSize);
+                batch.add(queue.take()); // Block until there is something to send
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) break;
+                    PendingTranscription next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                List<PendingTranscription> ready = batch;
+                senders.execute(() -> send(ready));
+                batch = new ArrayList<>(0);
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            fail(batch); // Collected but never handed to a sender
         }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        senders.shutdown(); // Batches already on the wire finish; the threads then exit
+        failQueued();
+    }
 
-        // 3. Delegate to the real object and cache the result
-        System.out.println("[PROXY] Cache MISS. Delegating to heavy backend...");
-        String result = realBackend.transcribe(audioId);
-        cache.put(audioId, result);
+    private void failQueued() {
+        List<PendingTranscription> orphans = new ArrayList<>();
+        queue.drainTo(orphans);
+        fail(orphans);
+    }
+
+    private static void fail(List<PendingTranscription> batch) {
+        for (PendingTranscription pending : batch) {
+            pending.result.completeExceptionally(new IllegalStateException("Batcher closed before " + pending.audioId + " was sent"));
+        }
+    }
 
-        return result;
+    private void send(List<PendingTranscription> batch) {
+        List<String> ids = new ArrayList<>(batch.size());
+        for (PendingTranscription pending : batch) {
+            ids.add(pending.audioId);
+        }
+        batches.increment();
+        batchedIds.add(batch.size());
+        try {
+            Map<String, String> results = backend.get().transcribeBatch(ids);
+            for (PendingTranscription pending : batch) {
+                String text = results.get(pending.audioId);
+                if (text != null) {
+                    pending.result.complete(text);
+                } else {
+                    pending.result.completeExceptionally(new IllegalStateException("Backend returned no result for " + pending.audioId));
+                }
+            }
+        } catch (RuntimeException e) {
+            for (PendingTranscription pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    long batchesSent() { return batches.sum(); }
+
+    double averageBatchSize() {
+        long sent = batches.sum();
+        return sent == 0 ? 0 : (double) batchedIds.sum() / sent;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PendingTranscription {
+        final String audioId;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        PendingTranscription(String audioId) {
+            this.audioId = audioId;
+        }
     }
 }
 
-// --- 4. TESTER (The Client) ---
+// --- 7. TESTER (The Client) ---
 public class Proxy {
     public static void main(String[] args) {
         // The client only talks to the interface. It doesn't know about the proxy or cache.
@@ -101,5 +1086,253 @@ public class Proxy {
         System.out.println("--- Request 3: audio_123.wav (AGAIN) ---");
         // This will be instantaneous and won't hit the network
         System.out.println("Result: " + service.transcribe("audio_123.wav") + "\n");
+        System.out.println("[METRICS] " + ((TranscriptionProxy) service).stats());
+
+        demoConcurrentProxy();
+    }
+
+    // 64 threads asking for 40 popular IDs at once, through a cache that only holds 32.
+    private static void demoConcurrentProxy() {
+        System.out.println("\n--- Concurrent Load: 64 threads x 200 requests, 40 IDs, cache of 32 ---");
+        GrpcTranscriptionBackend[] created = new GrpcTranscriptionBackend[1];
+        int connectionsBefore = GrpcTranscriptionBackend.connectionsOpened();
+        TranscriptionProxy proxy = new TranscriptionProxy(() -> {
+            created[0] = new GrpcTranscriptionBackend(200, 20, false);
+            return created[0];
+        }, 32, Duration.ofMinutes(5), false);
+
+        int threads = 64;
+        CountDownLatch ready = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            new Thread(() -> {
+                try {
+                    ready.await(); // Everyone starts together: the worst case for lazy init and misses
+                    for (int i = 0; i < 200; i++) {
+                        // Skewed popularity: low IDs are requested far more often
+                        int id = (int) Math.floor(40 * Math.pow(((seed * 7919 + i * 104_729) % 1000) / 1000.0, 2));
+                        proxy.transcribe("clip_" + id + ".wav");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        ready.countDown();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("12,800 requests in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        System.out.println("Backend connections opened: " + (GrpcTranscriptionBackend.connectionsOpened() - connectionsBefore)
+                + ", backend calls: " + created[0].callCount());
+        System.out.println("[METRICS] " + proxy.stats());
+
+        System.out.println("\n--- TTL Expiry (ttl = 100 ms) ---");
+        TranscriptionProxy shortLived = new TranscriptionProxy(() -> new GrpcTranscriptionBackend(0, 5, false),
+                100, Duration.ofMillis(100), false);
+        shortLived.transcribe("news.wav");
+        shortLived.transcribe("news.wav");
+        try {
+            Thread.sleep(150);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shortLived.transcribe("news.wav"); // Expired: fetched again
+        System.out.println("[METRICS] " + shortLived.stats());
+
+        demoBatching();
+    }
+
+    // 128 callers, 512 distinct clips (all misses), backend limited to 4 concurrent streams.
+    private static void demoBatching() {
+        System.out.println("\n--- Request Batching (512 misses, 128 callers, 20 ms backend, 4 streams) ---");
+        for (int maxBatch : new int[] {1, 32}) {
+            TranscriptionProxy proxy = new TranscriptionProxy(() -> new GrpcTranscriptionBackend(0, 20, false),
+                    1_000, Duration.ofMinutes(5), false, maxBatch, Duration.ofMillis(2),
+                    GrpcTranscriptionBackend.MAX_CONCURRENT_CALLS);
+            int callers = 128;
+            CountDownLatch done = new CountDownLatch(callers);
+            long start = System.nanoTime();
+            for (int c = 0; c < callers; c++) {
+                int caller = c;
+                new Thread(() -> {
+                    for (int i = caller; i < 512; i += callers) {
+                        proxy.transcribe("meeting_" + i + ".wav");
+                    }
+                    done.countDown();
+                }).start();
+            }
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println((maxBatch == 1 ? "Unbatched:" : "Batched (max " + maxBatch + ", 2 ms window):")
+                    + " " + millis + " ms, " + 512_000 / millis + " transcriptions/s");
+            System.out.println("[METRICS] " + proxy.stats());
+            proxy.close(); // Stops the dispatcher and sender threads
+        }
+
+        demoDiskTier();
+        demoAsync();
+    }
+
+    // 10,000 transcriptions in flight at once through the proxy, then a call that misses its deadline.
+    private static void demoAsync() {
+        System.out.println("\n--- Async: 10,000 concurrent transcriptions (200 ms calls, 1,000 streams) ---");
+        GrpcTranscriptionBackend[] created = new GrpcTranscriptionBackend[1];
+        TranscriptionProxy proxy = new TranscriptionProxy(() -> {
+            created[0] = new GrpcTranscriptionBackend(100, 200, false, 1_000);
+            return created[0];
+        }, 20_000, Duration.ofMinutes(5), false);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int platformBefore = threads.getThreadCount();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            futures.add(proxy.transcribeAsync("call_" + i + ".wav", Duration.ofSeconds(10)));
+        }
+        futures.add(proxy.transcribeAsync("call_42.wav")); // Joins the in-flight load for call_42
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println(futures.size() + " futures completed in " + (System.nanoTime() - start) / 1_000_000
+                + " ms, backend calls: " + created[0].callCount());
+        System.out.println("Platform threads: " + platformBefore + " before, peak " + threads.getPeakThreadCount()
+                + (CallThreads.VIRTUAL ? " (the calls ran on virtual threads)" : " (the calls ran on pooled platform threads, at most one per stream; JDK 21+ uses virtual threads)"));
+        System.out.println("[METRICS] " + proxy.stats());
+
+        System.out.println("\n--- Async: per-call deadline (50 ms deadline, 200 ms backend) ---");
+        try {
+            proxy.transcribeAsync("late.wav", Duration.ofMillis(50)).join();
+        } catch (CompletionException e) {
+            System.out.println("late.wav failed as expected: " + e.getCause().getClass().getSimpleName());
+        }
+        System.out.println("call_7.wav again, already complete from cache: " + proxy.transcribeAsync("call_7.wav").isDone());
     }
+
+    // Run 1 fills both tiers; run 2 is a "restart" with a new proxy and backend over the same file.
+    private static void demoDiskTier() {
+        System.out.println("\n--- Two-Tier Cache Across a Restart (200 long transcripts) ---");
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("transcripts");
+            Path logFile = directory.resolve("transcripts.log");
+            for (int run = 1; run <= 2; run++) {
+                LongFormBackend backend = new LongFormBackend(10);
+                try (DiskTranscriptStore disk = new DiskTranscriptStore(logFile, 8 << 20)) {
+                    TranscriptionProxy proxy = new TranscriptionProxy(() -> backend, 1_000, Duration.ofMinutes(5),
+                            false, 1, Duration.ZERO, 1, disk);
+                    long start = System.nanoTime();
+                    for (int pass = 0; pass < 2; pass++) {
+                        for (int i = 0; i < 200; i++) {
+                            proxy.transcribe("podcast_" + i + ".mp3");
+                        }
+                    }
+                    System.out.println("Run " + run + ": 400 requests in " + (System.nanoTime() - start) / 1_000_000
+                            + " ms, backend calls: " + backend.callCount());
+                    System.out.println("[METRICS] " + proxy.stats());
+                    System.out.println("[DISK]    " + disk.stats());
+                }
+            }
+
+            System.out.println("\n--- Disk Tier Size Cap and Compaction (256 KB log) ---");
+            try (DiskTranscriptStore small = new DiskTranscriptStore(directory.resolve("small.log"), 256 << 10)) {
+                LongFormBackend backend = new LongFormBackend(0);
+                for (int i = 0; i < 1_000; i++) {
+                    small.put("clip_" + (i % 400) + ".wav", backend.transcribe("clip_" + i + ".wav"));
+                }
+                System.out.println("[DISK]    " + small.stats() + ", newest entry readable: "
+                        + (small.get("clip_199.wav") != null) + ", oldest entry dropped: " + (small.get("clip_300.wav") == null));
+            }
+
+            System.out.println("\n--- Disk Tier Honours the TTL (5 min) ---");
+            try (DiskTranscriptStore disk = new DiskTranscriptStore(directory.resolve("ttl.log"), 1 << 20)) {
+                long now = System.currentTimeMillis();
+                disk.put("stale.mp3", "transcript from last week", now - Duration.ofMinutes(10).toMillis());
+                disk.put("fresh.mp3", "transcript from a minute ago", now - Duration.ofMinutes(1).toMillis());
+                LongFormBackend backend = new LongFormBackend(0);
+                TranscriptionProxy proxy = new TranscriptionProxy(() -> backend, 1_000, Duration.ofMinutes(5),
+                        false, 1, Duration.ZERO, 1, disk);
+                proxy.transcribe("stale.mp3");
+                proxy.transcribe("fresh.mp3");
+                System.out.println("Backend calls: " + backend.callCount() + " (the stale record was re-transcribed)");
+                System.out.println("[METRICS] " + proxy.stats());
+            }
+
+            System.out.println("\n--- Disk Tier Failure Is Not the Caller's Failure ---");
+            Path blocked = directory.resolve("blocked.log");
+            Path blocker = directory.resolve("blocked.log.compact");
+            Files.createDirectory(blocker); // Compaction can't create its temp file here
+            Files.createFile(blocker.resolve("keep"));
+            try (DiskTranscriptStore disk = new DiskTranscriptStore(blocked, 256 << 10)) {
+                LongFormBackend backend = new LongFormBackend(0);
+                TranscriptionProxy proxy = new TranscriptionProxy(() -> backend, 1_000, Duration.ofMinutes(5),
+                        false, 1, Duration.ZERO, 1, disk);
+                int served = 0;
+                for (int i = 0; i < 250; i++) {
+                    if (proxy.transcribe("episode_" + i + ".mp3") != null) served++;
+                }
+                String async = proxy.transcribeAsync("episode_250.mp3").join();
+                System.out.println("Served " + served + " sync + " + (async != null ? 1 : 0) + " async requests");
+                System.out.println("[METRICS] " + proxy.stats());
+                System.out.println("[DISK]    " + disk.stats());
+            } finally {
+                Files.deleteIfExists(blocker.resolve("keep"));
+                Files.deleteIfExists(blocker);
+            }
+        } catch (IOException e) {
+            System.out.println("[ERROR] Disk tier demo failed: " + e.getMessage());
+        } finally {
+            deleteQuietly(directory);
+        }
+    }
+
+    private static void deleteQuietly(Path directory) {
+        if (directory == null) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ignored) {
+            // Temp directory; the OS will clean it up
+        }
+    }
+}
+
+// Test double: a backend whose transcripts are long (tens of KB, repetitive like real speech
+// transcripts), so the disk tier's compression and size cap have something to do.
+class LongFormBackend implements TranscriptionService {
+    private final int callMillis;
+    private final AtomicLong calls = new AtomicLong();
+
+    LongFormBackend(int callMillis) {
+        this.callMillis = callMillis;
+    }
+
+    @Override
+    public String transcribe(String audioId) {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(callMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringBuilder text = new StringBuilder("Transcript of " + audioId + ":");
+        for (int sentence = 0; sentence < 300; sentence++) {
+            text.append(" [").append(sentence * 4).append("s] Speaker ").append(sentence % 3 + 1)
+                .append(": so the next thing we looked at was latency in the ingest path.");
+        }
+        return text.toString();
+    }
+
+    long callCount() { return calls.get(); }
 }
\ No newline at end of file